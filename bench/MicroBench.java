@@ -0,0 +1,74 @@
+import com.sun.management.ThreadMXBean;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.function.LongSupplier;
+
+public class MicroBench {
+    private static final ThreadMXBean THREADS = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private final int warmupIterations;
+    private final int measureIterations;
+    private final long iterationNanos;
+    private final String filter;
+    private volatile long sink;
+
+    public MicroBench(int warmupIterations, int measureIterations, long iterationMillis, String filter) {
+        this.warmupIterations = warmupIterations;
+        this.measureIterations = measureIterations;
+        this.iterationNanos = iterationMillis * 1_000_000L;
+        this.filter = filter;
+        System.out.printf("%-40s %12s %12s %12s %8s %8s%n", "Benchmark", "ns/op", "B/op", "MB/sec", "gc.count", "gc.ms");
+    }
+
+    public void run(String name, LongSupplier op) {
+        if (filter != null && !name.matches(filter))
+            return;
+        for (int i = 0; i < warmupIterations; ++i)
+            iteration(op);
+
+        long threadId = Thread.currentThread().threadId();
+        long gcCount = gcCount(), gcTime = gcTime();
+        long allocated = THREADS.getThreadAllocatedBytes(threadId);
+        long ops = 0, nanos = 0;
+        for (int i = 0; i < measureIterations; ++i) {
+            long start = System.nanoTime();
+            ops += iteration(op);
+            nanos += System.nanoTime() - start;
+        }
+        allocated = THREADS.getThreadAllocatedBytes(threadId) - allocated;
+
+        System.out.printf("%-40s %12.1f %12.1f %12.1f %8d %8d%n", name,
+                (double) nanos / ops,
+                (double) allocated / ops,
+                allocated / 1e6 / (nanos / 1e9),
+                gcCount() - gcCount,
+                gcTime() - gcTime);
+    }
+
+    private long iteration(LongSupplier op) {
+        long deadline = System.nanoTime() + iterationNanos;
+        long ops = 0;
+        long hash = 0;
+        do {
+            for (int i = 0; i < 64; ++i)
+                hash += op.getAsLong();
+            ops += 64;
+        } while (System.nanoTime() < deadline);
+        sink += hash;
+        return ops;
+    }
+
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans())
+            count += Math.max(0, gc.getCollectionCount());
+        return count;
+    }
+
+    private static long gcTime() {
+        long time = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans())
+            time += Math.max(0, gc.getCollectionTime());
+        return time;
+    }
+}
@@ -0,0 +1,150 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+public class PokerBenchmarks {
+    private static final int HANDS = 1024;
+
+    private static List<List<Card>> randomHands(SplittableRandom random) {
+        Deck deck = new Deck(random);
+        List<List<Card>> hands = new ArrayList<>();
+        for (int i = 0; i < HANDS; ++i) {
+            deck.shuffle();
+            List<Card> hand = new ArrayList<>();
+            for (int c = 0; c < 7; ++c)
+                hand.add(deck.dealCard());
+            hands.add(hand);
+        }
+        return hands;
+    }
+
+    private static List<Card> hand(Suit[] suits, Rank... ranks) {
+        List<Card> hand = new ArrayList<>();
+        for (int i = 0; i < ranks.length; ++i)
+            hand.add(Card.of(suits[i % suits.length], ranks[i]));
+        return hand;
+    }
+
+    private static List<List<Card>> worstCaseHands() {
+        Suit[] hearts = {Suit.HEARTS};
+        Suit[] mixed = {Suit.HEARTS, Suit.SPADES, Suit.CLUBS, Suit.DIAMONDS};
+        Suit[] twoSuits = {Suit.HEARTS, Suit.HEARTS, Suit.HEARTS, Suit.HEARTS, Suit.HEARTS, Suit.CLUBS, Suit.SPADES};
+        List<List<Card>> patterns = List.of(
+                hand(hearts, Rank.ACE, Rank.KING, Rank.QUEEN, Rank.JACK, Rank.TEN, Rank.NINE, Rank.EIGHT),
+                hand(hearts, Rank.ACE, Rank.FIVE, Rank.FOUR, Rank.THREE, Rank.TWO, Rank.KING, Rank.NINE),
+                hand(hearts, Rank.ACE, Rank.KING, Rank.JACK, Rank.NINE, Rank.SEVEN, Rank.FIVE, Rank.THREE),
+                hand(twoSuits, Rank.NINE, Rank.EIGHT, Rank.SEVEN, Rank.SIX, Rank.TWO, Rank.FIVE, Rank.TEN),
+                hand(mixed, Rank.ACE, Rank.TWO, Rank.THREE, Rank.FOUR, Rank.FIVE, Rank.FIVE, Rank.FOUR),
+                hand(mixed, Rank.TEN, Rank.JACK, Rank.QUEEN, Rank.KING, Rank.ACE, Rank.NINE, Rank.EIGHT));
+        List<List<Card>> hands = new ArrayList<>();
+        for (int i = 0; i < HANDS; ++i)
+            hands.add(patterns.get(i % patterns.size()));
+        return hands;
+    }
+
+    private static long[] masks(List<List<Card>> hands) {
+        long[] masks = new long[hands.size()];
+        for (int i = 0; i < masks.length; ++i)
+            masks[i] = CardSet.of(hands.get(i));
+        return masks;
+    }
+
+    private static Table newTable(SplittableRandom random, int seats) {
+        Table table = new Table(random);
+        for (int i = 0; i < seats; ++i)
+            table.addPlayer(new ServerPlayer("s" + i, "p" + i, 1_000_000_000));
+        return table;
+    }
+
+    private static long playHand(Table table) {
+        table.startNewHand();
+        while (table.isHandInProgress())
+            table.handleAction(PlayerAction.CALL, 0);
+        return table.getWinnersNames().size();
+    }
+
+    private static GameTable newGameTable(int seats) {
+        // a direct executor runs the table's mailbox inline on the benchmark thread
+        GameTable table = new GameTable("bench", seats, new SplittableRandom(7), Runnable::run);
+        for (int i = 0; i < seats; ++i)
+            table.join(new ClientHandler(null, null), new ServerPlayer("s" + i, "p" + i, 1_000));
+        table.getTable().startNewHand();
+        return table;
+    }
+
+    public static void main(String[] args) throws IOException {
+        MicroBench bench = new MicroBench(3, 5, 1000, args.length > 0 ? args[0] : null);
+        SplittableRandom random = new SplittableRandom(42);
+        int[] next = {0};
+
+        List<List<Card>> randomHands = randomHands(random);
+        List<List<Card>> worstHands = worstCaseHands();
+        long[] randomMasks = masks(randomHands);
+        long[] worstMasks = masks(worstHands);
+        bench.run("HandEvaluator.evaluate random", () -> HandEvaluator.evaluate(randomHands.get(next[0]++ & (HANDS - 1))).getScore());
+        bench.run("HandEvaluator.evaluate flush/straight", () -> HandEvaluator.evaluate(worstHands.get(next[0]++ & (HANDS - 1))).getScore());
+        bench.run("LookupHandEvaluator.evaluate random", () -> LookupHandEvaluator.evaluate(randomMasks[next[0]++ & (HANDS - 1)]));
+        bench.run("LookupHandEvaluator.evaluate flush/str", () -> LookupHandEvaluator.evaluate(worstMasks[next[0]++ & (HANDS - 1)]));
+
+        bench.run("Deck.<init>", () -> new Deck(random).remaining());
+        Deck deck = new Deck(random);
+        bench.run("Deck.shuffle + deal 9-max hand", () -> {
+            deck.shuffle();
+            long sum = 0;
+            for (int i = 0; i < 23; ++i)
+                sum += deck.dealCode();
+            return sum;
+        });
+
+        Table table = newTable(random, 6);
+        bench.run("Table hand cycle 6-max", () -> playHand(table));
+        Table fullTable = newTable(random, 9);
+        bench.run("Table hand cycle 9-max", () -> playHand(fullTable));
+
+        GameTable gameTable = newGameTable(9);
+        bench.run("GameTable.createDTO 9-max", () -> gameTable.createDTO("p0").players.size());
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        bench.run("createDTO + ObjectOutputStream 9-max", () -> {
+            try {
+                bytes.reset();
+                out.reset();
+                out.writeObject(gameTable.createDTO("p0"));
+                out.flush();
+                return bytes.size();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        WireWriter wire = new WireWriter();
+        bench.run("createDTO + binary snapshot 9-max", () -> {
+            wire.reset();
+            BinaryProtocol.encodeSnapshot(wire, 1, gameTable.createDTO("p0"));
+            return wire.size();
+        });
+        GameStateDTO previous = gameTable.createDTO("p0");
+        gameTable.getTable().getPlayers().get(3).makeBet(20);
+        GameStateDTO current = gameTable.createDTO("p0");
+        bench.run("DeltaCodec.encode one bet 9-max", () -> {
+            wire.reset();
+            DeltaCodec.encode(wire, 1, 2, previous, current);
+            return wire.size();
+        });
+        StateBroadcast first = new StateBroadcast(1, gameTable.createDTO(null), null);
+        PrivateView view = new PrivateView(0, current.players.getFirst().holeCards, null);
+        bench.run("StateBroadcast delta + 9 private views", () -> {
+            StateBroadcast broadcast = new StateBroadcast(2, gameTable.createDTO(null), first);
+            long size = broadcast.deltaFrame().remaining();
+            for (int i = 0; i < 9; ++i) {
+                wire.reset();
+                view.encode(wire, 0);
+                size += wire.size();
+            }
+            return size;
+        });
+    }
+}
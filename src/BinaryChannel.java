@@ -0,0 +1,170 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.List;
+
+public class BinaryChannel implements ProtocolChannel {
+    private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+
+    private final InputStream in;
+    private final WritableByteChannel out;
+    private final int version;
+    private final WireWriter writer = new WireWriter();
+    private final WireWriter privateWriter = new WireWriter(32);
+    private final ByteBuffer header = ByteBuffer.allocate(5);
+    private final ByteBuffer[] frame = new ByteBuffer[3];
+    private GameStateDTO lastState;
+    private StateBroadcast lastBroadcast;
+    private PrivateView lastView;
+    private long lastVersion = -1;
+    private volatile long bytesWritten;
+
+    public BinaryChannel(InputStream in, Socket socket, int version) throws IOException {
+        this.in = in;
+        // sockets accepted from a ServerSocketChannel write straight to the channel
+        this.out = socket.getChannel() != null ? socket.getChannel() : Channels.newChannel(socket.getOutputStream());
+        this.version = version;
+    }
+
+    @Override
+    public LoginMessage readLogin() throws IOException {
+        WireReader r = BinaryProtocol.readFrame(in);
+        return r.readByte() == BinaryProtocol.LOGIN ? BinaryProtocol.decodeLogin(r) : null;
+    }
+
+    @Override
+    public ActionMessage readAction() throws IOException {
+        WireReader r = BinaryProtocol.readFrame(in);
+        switch (r.readByte()) {
+            case BinaryProtocol.ACTION -> {
+                return BinaryProtocol.decodeAction(r);
+            }
+            case BinaryProtocol.RESYNC -> resync();
+            case BinaryProtocol.HEARTBEAT -> {
+            }
+        }
+        return null;
+    }
+
+    // the client lost track of the stream, the last state sent is all it needs
+    private synchronized void resync() throws IOException {
+        if (lastBroadcast != null) {
+            sendShared(lastBroadcast.snapshotFrame(), lastBroadcast, lastView);
+        } else if (lastState != null) {
+            writer.reset();
+            BinaryProtocol.encodeSnapshot(writer, lastVersion, lastState);
+            send(writer);
+        }
+    }
+
+    @Override
+    public synchronized void dropDeltaBase() {
+        lastVersion = -1;
+        lastState = null;
+    }
+
+    @Override
+    public synchronized void writeWelcome(ServerPlayer player, GameTable table) throws IOException {
+        writer.reset();
+        BinaryProtocol.encodeWelcome(writer, version, player.getSessionID(), player.getName(), table.getId(), table.getEpoch());
+        send(writer);
+    }
+
+    @Override
+    public synchronized void writeResume(List<ByteBuffer> missed, StateBroadcast latest, PrivateView view) throws IOException {
+        if (missed == null) {
+            sendShared(latest.snapshotFrame(), latest, view);
+        } else {
+            // only the last frame carries the private view, the earlier ones were dealt on other boards
+            for (int i = 0; i < missed.size(); ++i)
+                sendShared(missed.get(i), latest, i == missed.size() - 1 ? view : PrivateView.NONE);
+        }
+        lastBroadcast = latest;
+        lastView = view;
+        lastVersion = latest.getVersion();
+    }
+
+    @Override
+    public synchronized void writeHeartbeat() throws IOException {
+        writer.reset();
+        BinaryProtocol.encodeHeartbeat(writer);
+        send(writer);
+    }
+
+    @Override
+    public synchronized void writeState(StateBroadcast broadcast, PrivateView view) throws IOException {
+        if (version >= 3) {
+            ByteBuffer delta = lastVersion == broadcast.getPreviousVersion() ? broadcast.deltaFrame() : null;
+            sendShared(delta != null ? delta : broadcast.snapshotFrame(), broadcast, view);
+            lastBroadcast = broadcast;
+            lastView = view;
+            lastVersion = broadcast.getVersion();
+            return;
+        }
+
+        GameStateDTO state = view.applyTo(broadcast.getPublicState());
+        writer.reset();
+        if (version < 2)
+            BinaryProtocol.encodeState(writer, state);
+        else if (lastState == null)
+            BinaryProtocol.encodeSnapshot(writer, broadcast.getVersion(), state);
+        else
+            DeltaCodec.encode(writer, lastVersion, broadcast.getVersion(), lastState, state);
+        lastState = state;
+        lastVersion = broadcast.getVersion();
+        send(writer);
+    }
+
+    private void send(WireWriter frame) throws IOException {
+        write(ByteBuffer.wrap(frame.array(), 0, frame.size()), null);
+    }
+
+    // shared public part followed by this recipient's private section, in one frame
+    private void sendShared(ByteBuffer shared, StateBroadcast broadcast, PrivateView view) throws IOException {
+        privateWriter.reset();
+        view.encode(privateWriter, CardSet.of(broadcast.getPublicState().communityCards));
+        write(shared, ByteBuffer.wrap(privateWriter.array(), 0, privateWriter.size()));
+    }
+
+    private void write(ByteBuffer body, ByteBuffer tail) throws IOException {
+        header.clear();
+        BinaryProtocol.putVarInt(header, body.remaining() + (tail != null ? tail.remaining() : 0));
+        header.flip();
+        frame[0] = header;
+        frame[1] = body;
+        frame[2] = tail != null ? tail : EMPTY;
+        bytesWritten += header.remaining() + body.remaining() + frame[2].remaining();
+        if (out instanceof GatheringByteChannel gathering) {
+            while (header.hasRemaining() || body.hasRemaining() || frame[2].hasRemaining())
+                gathering.write(frame);
+        } else {
+            for (ByteBuffer buffer : frame) {
+                while (buffer.hasRemaining())
+                    out.write(buffer);
+            }
+        }
+    }
+
+    @Override
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    @Override
+    public boolean sendsHeartbeats() {
+        return version >= 4;
+    }
+
+    @Override
+    public boolean canResume() {
+        return version >= 5;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+}
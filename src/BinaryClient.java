@@ -0,0 +1,209 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectStreamConstants;
+import java.io.OutputStream;
+import java.net.ProtocolException;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+public class BinaryClient {
+    private static final byte[] LEGACY_HEADER = {
+            (byte) (ObjectStreamConstants.STREAM_MAGIC >>> 8), (byte) ObjectStreamConstants.STREAM_MAGIC,
+            (byte) (ObjectStreamConstants.STREAM_VERSION >>> 8), (byte) ObjectStreamConstants.STREAM_VERSION
+    };
+
+    private final Consumer<GameStateDTO> onState;
+    private final WireWriter writer = new WireWriter(16);
+    private String host;
+    private int port;
+    private String tableId;
+    private long epoch;
+    private Socket socket;
+    private InputStream in;
+    private OutputStream out;
+    private int version;
+    private String sessionId;
+    private String playerName;
+    private GameStateDTO publicState;
+    private GameStateDTO state;
+    private long stateVersion = -1;
+    private boolean awaitingSnapshot;
+    private volatile long bytesReceived;
+
+    public BinaryClient(Consumer<GameStateDTO> onState) {
+        this.onState = onState;
+    }
+
+    public void connect(String host, int port, String playerName) throws IOException {
+        connect(host, port, playerName, null);
+    }
+
+    public void connect(String host, int port, String playerName, String tableId) throws IOException {
+        this.host = host;
+        this.port = port;
+        open(BinaryProtocol::encodeLogin, playerName, tableId);
+    }
+
+    // after a dropped connection: the server keeps our seat for a while and catches us up from the last version we saw,
+    // or seats us as a new player once the session is gone
+    public void resume() throws IOException {
+        if (sessionId == null || version < 5)
+            throw new IllegalStateException("Server cannot resume sessions");
+        close();
+        long lastVersion = awaitingSnapshot ? -1 : stateVersion;
+        open((w, name, table) -> BinaryProtocol.encodeResume(w, name, table, sessionId, epoch, lastVersion), playerName, tableId);
+    }
+
+    private interface LoginEncoder {
+        void encode(WireWriter w, String name, String tableId);
+    }
+
+    private void open(LoginEncoder login, String playerName, String tableId) throws IOException {
+        socket = new Socket(host, port);
+        socket.setTcpNoDelay(true);
+        in = new BufferedInputStream(new FilterInputStream(socket.getInputStream()) {
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int n = super.read(b, off, len);
+                if (n > 0)
+                    bytesReceived += n;
+                return n;
+            }
+        });
+        out = new BufferedOutputStream(socket.getOutputStream());
+
+        synchronized (this) {
+            BinaryProtocol.writeHello(out);
+            writer.reset();
+            login.encode(writer, playerName, tableId);
+            BinaryProtocol.writeFrame(out, writer);
+            out.flush();
+        }
+
+        // the server greets every connection as a legacy one first
+        byte[] header = in.readNBytes(LEGACY_HEADER.length);
+        if (!Arrays.equals(header, LEGACY_HEADER))
+            throw new ProtocolException("Unexpected server greeting");
+
+        WireReader welcome = BinaryProtocol.readFrame(in);
+        if (welcome.readByte() != BinaryProtocol.WELCOME)
+            throw new ProtocolException("Expected welcome");
+        version = welcome.readByte();
+        sessionId = welcome.readString();
+        this.playerName = welcome.remaining() > 0 ? welcome.readString() : playerName;
+        if (version >= 5) {
+            String table = welcome.readString();
+            long tableEpoch = welcome.readVarLong();
+            // versions only continue within the same table instance
+            if (!table.equals(this.tableId) || tableEpoch != epoch) {
+                publicState = null;
+                stateVersion = -1;
+                awaitingSnapshot = false;
+            }
+            this.tableId = table;
+            this.epoch = tableEpoch;
+        } else {
+            this.tableId = tableId;
+        }
+    }
+
+    public void readLoop() throws IOException {
+        while (!Thread.currentThread().isInterrupted()) {
+            WireReader r = BinaryProtocol.readFrame(in);
+            switch (r.readByte()) {
+                case BinaryProtocol.STATE -> update(BinaryProtocol.decodeState(r), stateVersion, r);
+                case BinaryProtocol.SNAPSHOT -> {
+                    long snapshotVersion = r.readVarLong();
+                    awaitingSnapshot = false;
+                    update(BinaryProtocol.decodeState(r), snapshotVersion, r);
+                }
+                case BinaryProtocol.DELTA -> applyDelta(r);
+                case BinaryProtocol.HEARTBEAT -> sendHeartbeat();
+            }
+        }
+    }
+
+    private void applyDelta(WireReader r) throws IOException {
+        long base = r.readVarLong();
+        long deltaVersion = r.readVarLong();
+        if (awaitingSnapshot)
+            return;
+        if (publicState == null || base != stateVersion) {
+            awaitingSnapshot = true;
+            requestResync();
+            return;
+        }
+        update(DeltaCodec.apply(r, publicState), deltaVersion, r);
+    }
+
+    // from version 3 on the frame ends with our private view, deltas keep applying to the public state
+    private void update(GameStateDTO newState, long newVersion, WireReader r) throws IOException {
+        publicState = newState;
+        stateVersion = newVersion;
+        if (version >= 3)
+            newState = PrivateView.decode(r, CardSet.of(newState.communityCards)).applyTo(newState);
+        state = newState;
+        onState.accept(newState);
+    }
+
+    public synchronized void requestResync() throws IOException {
+        writer.reset();
+        BinaryProtocol.encodeResync(writer);
+        BinaryProtocol.writeFrame(out, writer);
+        out.flush();
+    }
+
+    private synchronized void sendHeartbeat() throws IOException {
+        writer.reset();
+        BinaryProtocol.encodeHeartbeat(writer);
+        BinaryProtocol.writeFrame(out, writer);
+        out.flush();
+    }
+
+    public GameStateDTO getState() {
+        return state;
+    }
+
+    public long getStateVersion() {
+        return stateVersion;
+    }
+
+    public synchronized void sendAction(PlayerAction action, int amount) throws IOException {
+        writer.reset();
+        BinaryProtocol.encodeAction(writer, action, amount);
+        BinaryProtocol.writeFrame(out, writer);
+        out.flush();
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public String getPlayerName() {
+        return playerName;
+    }
+
+    public long getBytesReceived() {
+        return bytesReceived;
+    }
+
+    public String getSessionId() {
+        return sessionId;
+    }
+
+    public String getTableId() {
+        return tableId;
+    }
+
+    public void close() {
+        try {
+            if (socket != null)
+                socket.close();
+        } catch (IOException ignored) {
+        }
+    }
+}
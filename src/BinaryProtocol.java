@@ -0,0 +1,292 @@
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+public class BinaryProtocol {
+    // handshake: client sends MAGIC + version byte, then frames follow in both directions
+    // frame: varint length, message type byte, payload
+    public static final byte[] MAGIC = {'P', 'K'};
+    public static final int VERSION = 5;
+    public static final int MAX_FRAME = 1 << 20;
+
+    public static final int LOGIN = 1;
+    public static final int WELCOME = 2;
+    public static final int STATE = 3;
+    public static final int ACTION = 4;
+    // version 2: versioned snapshots and deltas instead of STATE
+    // version 3: snapshots and deltas carry the public state, followed by the recipient's PrivateView
+    public static final int SNAPSHOT = 5;
+    public static final int DELTA = 6;
+    public static final int RESYNC = 7;
+    // version 4: either side may send HEARTBEAT, a client answers the server's with one of its own
+    public static final int HEARTBEAT = 8;
+    // version 5: WELCOME names the table and its epoch, LOGIN may resume a session from the last version seen
+
+    private static final int FOLDED = 1;
+    private static final int ALL_IN = 2;
+    private static final int WAITING = 4;
+    private static final int HAS_HOLE_CARDS = 8;
+    private static final int HAS_RESULT = 16;
+    private static final int RESULT_CARDS = 32;
+
+    private static final int HAND_IN_PROGRESS = 1;
+    private static final int SHOWDOWN = 2;
+
+    private static final int NO_CARDS = 0xFF;
+
+    private static final int NO_RESULT = 0;
+    private static final int RESULT_SCORE = 1;
+    private static final int RESULT_SCORE_AND_CARDS = 2;
+
+    public static boolean isMagic(int b0, int b1) {
+        return b0 == MAGIC[0] && b1 == MAGIC[1];
+    }
+
+    public static void writeHello(OutputStream out) throws IOException {
+        out.write(MAGIC);
+        out.write(VERSION);
+    }
+
+    public static void writeFrame(OutputStream out, WireWriter frame) throws IOException {
+        int length = frame.size();
+        while ((length & ~0x7F) != 0) {
+            out.write((length & 0x7F) | 0x80);
+            length >>>= 7;
+        }
+        out.write(length);
+        frame.writeTo(out);
+    }
+
+    static void putVarInt(ByteBuffer buffer, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    public static WireReader readFrame(InputStream in) throws IOException {
+        int length = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = in.read();
+            if (b < 0)
+                throw new EOFException();
+            length |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0)
+                break;
+            if (shift >= 21)
+                throw new IOException("Malformed frame length");
+        }
+        if (length <= 0 || length > MAX_FRAME)
+            throw new IOException("Bad frame length " + length);
+        byte[] frame = in.readNBytes(length);
+        if (frame.length < length)
+            throw new EOFException();
+        return new WireReader(frame);
+    }
+
+    public static void encodeLogin(WireWriter w, String name, String tableId) {
+        w.writeByte(LOGIN).writeString(name);
+        if (tableId != null)
+            w.writeString(tableId);
+    }
+
+    // versions are only comparable within one epoch of the table, anything else gets a snapshot
+    public static void encodeResume(WireWriter w, String name, String tableId, String sessionId, long epoch, long lastVersion) {
+        w.writeByte(LOGIN).writeString(name).writeString(tableId != null ? tableId : "");
+        w.writeString(sessionId).writeVarLong(epoch).writeVarLong(lastVersion);
+    }
+
+    public static LoginMessage decodeLogin(WireReader r) throws IOException {
+        String name = r.readString();
+        String tableId = r.remaining() > 0 ? r.readString() : null;
+        if (tableId != null && tableId.isEmpty())
+            tableId = null;
+        if (r.remaining() == 0)
+            return new LoginMessage(name, tableId);
+        String sessionId = r.readString();
+        long epoch = r.readVarLong();
+        return new LoginMessage(name, tableId, sessionId, epoch, r.readVarLong());
+    }
+
+    public static void encodeWelcome(WireWriter w, int version, String sessionId, String name, String tableId, long epoch) {
+        w.writeByte(WELCOME).writeByte(version).writeString(sessionId).writeString(name);
+        if (version >= 5)
+            w.writeString(tableId).writeVarLong(epoch);
+    }
+
+    public static void encodeAction(WireWriter w, PlayerAction action, int amount) {
+        w.writeByte(ACTION).writeByte(action.ordinal()).writeVarInt(amount);
+    }
+
+    public static ActionMessage decodeAction(WireReader r) throws IOException {
+        int ordinal = r.readByte();
+        if (ordinal >= PlayerAction.values().length)
+            throw new IOException("Bad action " + ordinal);
+        return new ActionMessage(PlayerAction.values()[ordinal], r.readVarInt());
+    }
+
+    public static void encodeResync(WireWriter w) {
+        w.writeByte(RESYNC);
+    }
+
+    public static void encodeHeartbeat(WireWriter w) {
+        w.writeByte(HEARTBEAT);
+    }
+
+    public static void encodeState(WireWriter w, GameStateDTO state) {
+        w.writeByte(STATE);
+        encodeStateBody(w, state);
+    }
+
+    public static void encodeSnapshot(WireWriter w, long version, GameStateDTO state) {
+        w.writeByte(SNAPSHOT).writeVarLong(version);
+        encodeStateBody(w, state);
+    }
+
+    private static void encodeStateBody(WireWriter w, GameStateDTO state) {
+        w.writeVarInt(state.pot);
+        w.writeVarInt(state.currentMaxBet);
+        w.writeSignedVarInt(state.currentPlayerIndex);
+        w.writeSignedVarInt(state.dealerIndex);
+        w.writeByte(tableFlags(state));
+        writeCards(w, state.communityCards);
+        w.writeVarInt(state.winners.size());
+        for (String winner : state.winners)
+            w.writeString(winner);
+        w.writeVarInt(state.players.size());
+        long board = CardSet.of(state.communityCards);
+        for (GameStateDTO.PlayerDTO p : state.players)
+            encodePlayer(w, p, board);
+    }
+
+    private static void encodePlayer(WireWriter w, GameStateDTO.PlayerDTO p, long board) {
+        // a result over the hole cards plus the current board sends only its score
+        boolean resultCards = p.handResult != null
+                && p.handResult.getCards() != (board | CardSet.of(p.holeCards));
+        int flags = seatFlags(p)
+                | (p.holeCards != null ? HAS_HOLE_CARDS : 0)
+                | (p.handResult != null ? HAS_RESULT : 0)
+                | (resultCards ? RESULT_CARDS : 0);
+        w.writeString(p.name);
+        w.writeVarInt(p.chips);
+        w.writeVarInt(p.currentBet);
+        w.writeByte(flags);
+        if (p.holeCards != null)
+            writeCards(w, p.holeCards);
+        if (p.handResult != null)
+            w.writeVarLong(p.handResult.getScore());
+        if (resultCards)
+            writeCards(w, CardSet.toList(p.handResult.getCards()));
+        w.writeVarInt(encodeEquity(p.allInEquity));
+    }
+
+    public static GameStateDTO decodeState(WireReader r) throws IOException {
+        GameStateDTO state = new GameStateDTO();
+        state.pot = r.readVarInt();
+        state.currentMaxBet = r.readVarInt();
+        state.currentPlayerIndex = r.readSignedVarInt();
+        state.dealerIndex = r.readSignedVarInt();
+        setTableFlags(state, r.readByte());
+        state.communityCards = readCards(r);
+        int winners = r.readVarInt();
+        for (int i = 0; i < winners; ++i)
+            state.winners.add(r.readString());
+        int players = r.readVarInt();
+        long board = CardSet.of(state.communityCards);
+        for (int i = 0; i < players; ++i)
+            state.players.add(decodePlayer(r, board));
+        return state;
+    }
+
+    private static GameStateDTO.PlayerDTO decodePlayer(WireReader r, long board) throws IOException {
+        GameStateDTO.PlayerDTO p = new GameStateDTO.PlayerDTO();
+        p.name = r.readString();
+        p.chips = r.readVarInt();
+        p.currentBet = r.readVarInt();
+        int flags = r.readByte();
+        setSeatFlags(p, flags);
+        if ((flags & HAS_HOLE_CARDS) != 0)
+            p.holeCards = readCards(r);
+        if ((flags & HAS_RESULT) != 0) {
+            long score = r.readVarLong();
+            long cards = (flags & RESULT_CARDS) != 0 ? CardSet.of(readCards(r)) : board | CardSet.of(p.holeCards);
+            p.handResult = new HandResult(score, cards);
+        }
+        p.allInEquity = decodeEquity(r.readVarInt());
+        return p;
+    }
+
+    static int tableFlags(GameStateDTO s) {
+        return (s.isHandInProgress ? HAND_IN_PROGRESS : 0) | (s.isShowdown ? SHOWDOWN : 0);
+    }
+
+    static void setTableFlags(GameStateDTO s, int flags) {
+        s.isHandInProgress = (flags & HAND_IN_PROGRESS) != 0;
+        s.isShowdown = (flags & SHOWDOWN) != 0;
+    }
+
+    static int seatFlags(GameStateDTO.PlayerDTO p) {
+        return (p.isFolded ? FOLDED : 0) | (p.isAllIn ? ALL_IN : 0) | (p.isWaitingForNextHand ? WAITING : 0);
+    }
+
+    static void setSeatFlags(GameStateDTO.PlayerDTO p, int flags) {
+        p.isFolded = (flags & FOLDED) != 0;
+        p.isAllIn = (flags & ALL_IN) != 0;
+        p.isWaitingForNextHand = (flags & WAITING) != 0;
+    }
+
+    // equity in hundredths of a percent, 0 means unknown
+    static int encodeEquity(double equity) {
+        return equity < 0 ? 0 : (int) Math.round(equity * 100) + 1;
+    }
+
+    static double decodeEquity(int equity) {
+        return equity == 0 ? -1 : (equity - 1) / 100.0;
+    }
+
+    // a result over the implied cards (hole cards plus board) sends only its score
+    static void writeResult(WireWriter w, HandResult result, long impliedCards) {
+        if (result == null) {
+            w.writeByte(NO_RESULT);
+        } else if (result.getCards() == impliedCards) {
+            w.writeByte(RESULT_SCORE).writeVarLong(result.getScore());
+        } else {
+            w.writeByte(RESULT_SCORE_AND_CARDS).writeVarLong(result.getScore());
+            writeCards(w, CardSet.toList(result.getCards()));
+        }
+    }
+
+    static HandResult readResult(WireReader r, long impliedCards) throws IOException {
+        int kind = r.readByte();
+        if (kind == NO_RESULT)
+            return null;
+        long score = r.readVarLong();
+        return new HandResult(score, kind == RESULT_SCORE_AND_CARDS ? CardSet.of(readCards(r)) : impliedCards);
+    }
+
+    // null lists are sent as NO_CARDS
+    static void writeCards(WireWriter w, List<Card> cards) {
+        if (cards == null) {
+            w.writeByte(NO_CARDS);
+            return;
+        }
+        w.writeByte(cards.size());
+        for (Card card : cards)
+            w.writeCard(card);
+    }
+
+    static List<Card> readCards(WireReader r) throws IOException {
+        int count = r.readByte();
+        if (count == NO_CARDS)
+            return null;
+        List<Card> cards = new ArrayList<>(count);
+        for (int i = 0; i < count; ++i)
+            cards.add(r.readCard());
+        return cards;
+    }
+}
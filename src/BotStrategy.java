@@ -0,0 +1,52 @@
+import java.util.random.RandomGenerator;
+
+public enum BotStrategy {
+    CALLING_STATION {
+        @Override
+        ActionMessage decide(GameStateDTO state, GameStateDTO.PlayerDTO me, RandomGenerator random) {
+            return checkOrCall(state, me);
+        }
+    },
+    RANDOM {
+        @Override
+        ActionMessage decide(GameStateDTO state, GameStateDTO.PlayerDTO me, RandomGenerator random) {
+            int roll = random.nextInt(10);
+            if (roll == 0 && me.currentBet < state.currentMaxBet)
+                return new ActionMessage(PlayerAction.FOLD, 0);
+            if (roll <= 2)
+                return raise(state, me, 1 + random.nextInt(3));
+            return checkOrCall(state, me);
+        }
+    },
+    TIGHT_AGGRESSIVE {
+        @Override
+        ActionMessage decide(GameStateDTO state, GameStateDTO.PlayerDTO me, RandomGenerator random) {
+            HandRank rank = me.handResult == null ? HandRank.HIGH_CARD : me.handResult.getRank();
+            // stops re-raising once the pot is big so two strong hands cannot raise forever
+            if (rank.getCategory() >= HandRank.TWO_PAIRS.getCategory() && state.currentMaxBet < MAX_RAISE_TO)
+                return raise(state, me, 3);
+            if (rank == HandRank.PAIR || state.currentMaxBet - me.currentBet <= BIG_BLIND)
+                return checkOrCall(state, me);
+            return new ActionMessage(PlayerAction.FOLD, 0);
+        }
+    };
+
+    private static final int BIG_BLIND = 10;
+    private static final int MAX_RAISE_TO = 10 * BIG_BLIND;
+
+    abstract ActionMessage decide(GameStateDTO state, GameStateDTO.PlayerDTO me, RandomGenerator random);
+
+    static ActionMessage checkOrCall(GameStateDTO state, GameStateDTO.PlayerDTO me) {
+        if (me.currentBet >= state.currentMaxBet)
+            return new ActionMessage(PlayerAction.CHECK, 0);
+        return new ActionMessage(PlayerAction.CALL, 0);
+    }
+
+    // the raise amount is the bet the player ends the action with
+    static ActionMessage raise(GameStateDTO state, GameStateDTO.PlayerDTO me, int bigBlinds) {
+        int target = Math.min(state.currentMaxBet + bigBlinds * BIG_BLIND, me.currentBet + me.chips);
+        if (target <= state.currentMaxBet)
+            return checkOrCall(state, me);
+        return new ActionMessage(PlayerAction.RAISE, target);
+    }
+}
@@ -0,0 +1,39 @@
+import java.security.SecureRandom;
+import java.util.random.RandomGenerator;
+
+public class BufferedSecureRandom implements RandomGenerator {
+    private final SecureRandom source;
+    private final byte[] buffer;
+    private int position;
+
+    public BufferedSecureRandom() {
+        this(new SecureRandom(), 4096);
+    }
+
+    public BufferedSecureRandom(SecureRandom source, int bufferSize) {
+        this.source = source;
+        this.buffer = new byte[bufferSize];
+        this.position = bufferSize;
+    }
+
+    private long next(int bytes) {
+        if (position + bytes > buffer.length) {
+            source.nextBytes(buffer);
+            position = 0;
+        }
+        long value = 0;
+        for (int i = 0; i < bytes; ++i)
+            value = (value << 8) | (buffer[position++] & 0xFF);
+        return value;
+    }
+
+    @Override
+    public long nextLong() {
+        return next(8);
+    }
+
+    @Override
+    public int nextInt() {
+        return (int) next(4);
+    }
+}
@@ -1,14 +1,34 @@
 import java.io.Serializable;
 
 public class Card implements Serializable {
+    private static final Card[] CACHE = new Card[64];
+
+    static {
+        for (Suit suit : Suit.values())
+            for (Rank power : Rank.values())
+                CACHE[code(suit, power)] = new Card(suit, power);
+    }
+
     private final Suit suit;
     private final Rank power;
 
-    public Card (Suit suit, Rank power) {
+    private Card (Suit suit, Rank power) {
         this.suit=suit;
         this.power=power;
     }
 
+    public static Card of (Suit suit, Rank power) {
+        return CACHE[code(suit, power)];
+    }
+
+    public static Card fromCode (int code) {
+        return CACHE[code];
+    }
+
+    public static int code (Suit suit, Rank power) {
+        return suit.ordinal() << 4 | power.getRank();
+    }
+
     public Suit getSuit () {
         return suit;
     }
@@ -16,4 +36,16 @@ public class Card implements Serializable {
     public Rank getPower () {
         return power;
     }
+
+    public int getCode () {
+        return code(suit, power);
+    }
+
+    public long getMask () {
+        return 1L << getCode();
+    }
+
+    private Object readResolve () {
+        return of(suit, power);
+    }
 }
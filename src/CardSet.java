@@ -0,0 +1,38 @@
+import java.util.ArrayList;
+import java.util.List;
+
+public class CardSet {
+    public static final long FULL_DECK;
+
+    static {
+        long deck = 0;
+        for (Suit suit : Suit.values())
+            for (Rank power : Rank.values())
+                deck |= Card.of(suit, power).getMask();
+        FULL_DECK = deck;
+    }
+
+    public static long of(List<Card> cards) {
+        long mask = 0;
+        if (cards == null)
+            return mask;
+        for (int i = 0; i < cards.size(); ++i)
+            mask |= cards.get(i).getMask();
+        return mask;
+    }
+
+    public static boolean contains(long set, Card card) {
+        return (set & card.getMask()) != 0;
+    }
+
+    public static int size(long set) {
+        return Long.bitCount(set);
+    }
+
+    public static List<Card> toList(long set) {
+        List<Card> cards = new ArrayList<>(Long.bitCount(set));
+        for (long m = set; m != 0; m &= m - 1)
+            cards.add(Card.fromCode(Long.numberOfTrailingZeros(m)));
+        return cards;
+    }
+}
@@ -1,13 +1,23 @@
 import java.io.*;
+import java.net.ProtocolException;
 import java.net.Socket;
 import java.net.SocketException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 public class ClientHandler implements Runnable {
+    private static final long HEARTBEAT_MILLIS = ServerConfig.getLong("clientHeartbeatMs", 10_000);
+    private static final long IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(ServerConfig.getLong("clientIdleMs", 30_000));
+
     private final Socket socket;
     private final GameServer server;
-    private ObjectOutputStream out;
-    private ObjectInputStream in;
+    private volatile ProtocolChannel channel;
+    private volatile ClientOutbox outbox;
     private volatile ServerPlayer player;
+    private volatile long lastHeard = System.nanoTime();
+    private volatile TimerWheel.Timeout heartbeat;
 
     public ClientHandler(Socket socket, GameServer server) {
         this.socket = socket;
@@ -15,13 +25,18 @@ public class ClientHandler implements Runnable {
     }
 
     private void initStreams() throws IOException {
-        this.out = new ObjectOutputStream(socket.getOutputStream());
-        this.out.flush();
-        this.in = new ObjectInputStream(socket.getInputStream());
+        // clients without heartbeats still get dead peers noticed by the OS, if only after minutes
+        socket.setKeepAlive(true);
+        this.channel = ProtocolChannel.negotiate(socket);
+        ClientOutbox outbox = new ClientOutbox(channel, this::closeSocket);
+        Thread.Builder writers = Thread.currentThread().isVirtual() ? Thread.ofVirtual() : Thread.ofPlatform().daemon();
+        writers.name(Thread.currentThread().getName() + "-writer").start(outbox);
+        this.outbox = outbox;
+        ServerMetrics.INSTANCE.clientConnected(this);
     }
 
-    private void cleanup() {
-        server.removeClient(this);
+    // the reader fails on the closed socket and runs cleanup from its own thread
+    private void closeSocket() {
         try {
             if (socket != null && !socket.isClosed()) {
                 socket.close();
@@ -30,10 +45,22 @@ public class ClientHandler implements Runnable {
         }
     }
 
-    private void processMessages() throws IOException, ClassNotFoundException {
+    private void cleanup() {
+        TimerWheel.Timeout heartbeat = this.heartbeat;
+        if (heartbeat != null)
+            heartbeat.cancel();
+        if (outbox != null)
+            outbox.close();
+        ServerMetrics.INSTANCE.clientDisconnected(this);
+        server.removeClient(this);
+        closeSocket();
+    }
+
+    private void processMessages() throws IOException {
         while (!Thread.currentThread().isInterrupted()) {
-            Object input = in.readObject();
-            if (input instanceof ActionMessage action && player != null) {
+            ActionMessage action = channel.readAction();
+            lastHeard = System.nanoTime();
+            if (action != null && player != null) {
                 server.handleAction(player.getSessionID(), action);
             }
         }
@@ -43,14 +70,21 @@ public class ClientHandler implements Runnable {
     public void run() {
         try {
             initStreams();
-            if (in.readObject() instanceof String name) {
-                this.player = server.registerPlayer(this, name);
-            } else {
+            LoginMessage login = channel.readLogin();
+            if (login != null && login.sessionId != null)
+                this.player = server.resumePlayer(this, login);
+            // a session that is gone rejoins like a new player
+            if (login != null && player == null) {
+                this.player = server.registerPlayer(this, login.name, login.tableId);
+            }
+            if (player == null) {
                 return;
             }
+            if (channel.sendsHeartbeats() && HEARTBEAT_MILLIS > 0)
+                scheduleHeartbeat();
             processMessages();
-        } catch (EOFException | SocketException e) {
-        } catch (ClassNotFoundException e) {
+        } catch (EOFException | SocketException | ClosedChannelException e) {
+        } catch (ProtocolException e) {
             System.err.println("Protocol mismatch: " + e.getMessage());
         } catch (Exception e) {
             System.err.println("Handler error [" + (player != null ? player.getName() : "unknown") + "]: " + e.getMessage());
@@ -60,23 +94,63 @@ public class ClientHandler implements Runnable {
         }
     }
 
-    public synchronized void sendState(GameStateDTO state) {
-        if (out == null)
+    private void scheduleHeartbeat() {
+        heartbeat = TimerWheel.SERVER.schedule(HEARTBEAT_MILLIS, this::heartbeat);
+    }
+
+    // runs on the timer wheel: the write is left to the outbox, a client that stopped answering is cut off
+    private void heartbeat() {
+        if (System.nanoTime() - lastHeard > IDLE_NANOS) {
+            System.out.println("Disconnecting idle client: " + (player != null ? player.getName() : "unknown"));
+            ServerMetrics.INSTANCE.idleDisconnects.increment();
+            closeSocket();
             return;
-        try {
-            out.reset();
-            out.writeObject(state);
-            out.flush();
-        } catch (IOException e) {
-            cleanup();
         }
+        if (outbox.heartbeat())
+            scheduleHeartbeat();
     }
 
-    public void setPlayer(ServerPlayer player) {
+    public void sendState(StateBroadcast broadcast, PrivateView view) {
+        ClientOutbox outbox = this.outbox;
+        if (outbox == null)
+            return;
+        long start = ServerMetrics.start();
+        boolean accepted = outbox.offer(broadcast, view);
+        ServerMetrics.stop(ServerMetrics.INSTANCE.sendState, start);
+        if (!accepted) {
+            System.out.println("Disconnecting slow client: " + (player != null ? player.getName() : "unknown"));
+            closeSocket();
+        }
+    }
+
+    public void resume(List<ByteBuffer> missed, StateBroadcast latest, PrivateView view) {
+        ClientOutbox outbox = this.outbox;
+        if (outbox != null && !outbox.resume(missed, latest, view))
+            closeSocket();
+    }
+
+    public void disconnect() {
+        closeSocket();
+    }
+
+    // only clients that know how to resume keep their seat while disconnected
+    public boolean canResume() {
+        ProtocolChannel channel = this.channel;
+        return channel != null && channel.canResume();
+    }
+
+    public void setPlayer(ServerPlayer player, GameTable table) {
         this.player = player;
+        if (outbox != null)
+            outbox.welcome(player, table);
     }
 
     public ServerPlayer getPlayer() {
         return player;
     }
-}
\ No newline at end of file
+
+    public long getBytesWritten() {
+        ProtocolChannel channel = this.channel;
+        return channel != null ? channel.getBytesWritten() : 0;
+    }
+}
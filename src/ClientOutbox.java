@@ -0,0 +1,227 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+public class ClientOutbox implements Runnable {
+    private static final int CAPACITY = ServerConfig.getInt("outboxCapacity", 64);
+    private static final SlowClientPolicy POLICY = SlowClientPolicy.fromConfig();
+    private static final Entry HEARTBEAT = new Entry(null, null, null, null, null, false, false);
+
+    private final ProtocolChannel channel;
+    private final Runnable onFailure;
+    private final int capacity;
+    private final SlowClientPolicy policy;
+    private final ArrayDeque<Entry> queue = new ArrayDeque<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private int pendingStates;
+    // states replaced in a row without the writer taking one
+    private int skipped;
+    // DROP: nothing is queued for the client until its writer gets through the write it is stuck on
+    private boolean dropping;
+    // RESYNC: the next state the writer takes goes out as a full snapshot
+    private boolean resyncing;
+    private long dropped;
+    private boolean closed;
+
+    private static class Entry {
+        final ServerPlayer welcome;
+        final GameTable table;
+        final StateBroadcast broadcast;
+        final PrivateView view;
+        // set on the first state after a resume: the deltas the client missed, or null for a snapshot
+        final List<ByteBuffer> missed;
+        final boolean resume;
+        // RESYNC: the channel forgets what the client saw and sends this state in full
+        final boolean resync;
+
+        Entry(ServerPlayer welcome, GameTable table, StateBroadcast broadcast, PrivateView view, List<ByteBuffer> missed,
+              boolean resume, boolean resync) {
+            this.welcome = welcome;
+            this.table = table;
+            this.broadcast = broadcast;
+            this.view = view;
+            this.missed = missed;
+            this.resume = resume;
+            this.resync = resync;
+        }
+    }
+
+    public ClientOutbox(ProtocolChannel channel, Runnable onFailure) {
+        this(channel, onFailure, CAPACITY, POLICY);
+    }
+
+    public ClientOutbox(ProtocolChannel channel, Runnable onFailure, int capacity, SlowClientPolicy policy) {
+        this.channel = channel;
+        this.onFailure = onFailure;
+        this.capacity = capacity;
+        this.policy = policy;
+    }
+
+    public void welcome(ServerPlayer player, GameTable table) {
+        lock.lock();
+        try {
+            queue.add(new Entry(player, table, null, null, null, false, false));
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // false once the outbox is closed
+    public boolean heartbeat() {
+        lock.lock();
+        try {
+            if (closed)
+                return false;
+            queue.add(HEARTBEAT);
+            notEmpty.signal();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // never blocks, returns false when the client has to be disconnected
+    public boolean offer(StateBroadcast broadcast, PrivateView view) {
+        return offer(new Entry(null, null, broadcast, view, null, false, false));
+    }
+
+    public boolean resume(List<ByteBuffer> missed, StateBroadcast latest, PrivateView view) {
+        return offer(new Entry(null, null, latest, view, missed, true, false));
+    }
+
+    private boolean offer(Entry entry) {
+        long start = ServerMetrics.start();
+        lock.lock();
+        ServerMetrics.stop(ServerMetrics.INSTANCE.outboxLockWait, start);
+        try {
+            if (closed)
+                return true;
+            if (dropping) {
+                dropped++;
+                ServerMetrics.INSTANCE.statesDropped.increment();
+                return true;
+            }
+            // only the latest state is worth sending: delta channels diff against what they wrote last
+            // or send a snapshot across the gap
+            int superseded = removePendingStates();
+            if (superseded > 0) {
+                dropped += superseded;
+                ServerMetrics.INSTANCE.statesDropped.add(superseded);
+                if (++skipped >= capacity) {
+                    skipped = 0;
+                    switch (policy) {
+                        case DROP -> {
+                            dropping = true;
+                            dropped++;
+                            ServerMetrics.INSTANCE.statesDropped.increment();
+                            return true;
+                        }
+                        case DISCONNECT -> {
+                            closed = true;
+                            queue.clear();
+                            notEmpty.signal();
+                            return false;
+                        }
+                        case RESYNC -> resyncing = true;
+                    }
+                }
+            }
+            if (resyncing)
+                entry = new Entry(null, null, entry.broadcast, entry.view, entry.missed, entry.resume, true);
+            queue.add(entry);
+            pendingStates++;
+            notEmpty.signal();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int removePendingStates() {
+        int removed = pendingStates;
+        if (removed > 0)
+            queue.removeIf(e -> e.broadcast != null);
+        pendingStates = 0;
+        return removed;
+    }
+
+    private Entry take() throws InterruptedException {
+        lock.lock();
+        try {
+            while (queue.isEmpty() && !closed)
+                notEmpty.await();
+            if (closed)
+                return null;
+            Entry entry = queue.poll();
+            if (entry.broadcast != null) {
+                pendingStates--;
+                skipped = 0;
+                resyncing = false;
+            }
+            return entry;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void caughtUp() {
+        lock.lock();
+        try {
+            dropping = false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            queue.clear();
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getDropped() {
+        lock.lock();
+        try {
+            return dropped;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void run() {
+        try {
+            Entry entry;
+            while ((entry = take()) != null) {
+                if (entry == HEARTBEAT)
+                    channel.writeHeartbeat();
+                else if (entry.welcome != null)
+                    channel.writeWelcome(entry.welcome, entry.table);
+                else if (entry.resume)
+                    channel.writeResume(entry.missed, entry.broadcast, entry.view);
+                else {
+                    long start = ServerMetrics.start();
+                    if (entry.resync)
+                        channel.dropDeltaBase();
+                    channel.writeState(entry.broadcast, entry.view);
+                    ServerMetrics.stop(ServerMetrics.INSTANCE.write, start);
+                }
+                caughtUp();
+            }
+        } catch (IOException e) {
+            onFailure.run();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
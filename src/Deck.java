@@ -1,23 +1,85 @@
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
 
 public class Deck {
-    private final List<Card> cardList = new ArrayList<>();
+    private final int[] codes = new int[52];
+    private final RandomGenerator random;
+    private int top;
+    private final int[] forced = new int[52];
+    private int forcedHead;
+    private int forcedTail;
 
     public Deck () {
+        this(new SplittableRandom());
+    }
+
+    public Deck (RandomGenerator random) {
+        this.random = random;
+        int i = 0;
         for (Suit suit: Suit.values()) {
             for (Rank power : Rank.values()) {
-                Card card = new Card(suit,power);
-                cardList.add(card);
+                codes[i++] = Card.code(suit, power);
             }
         }
-        Collections.shuffle(cardList);
+    }
+
+    // partial Fisher-Yates: every deal swaps a random card from the rest of the deck to the top,
+    // so a new hand only has to rewind
+    public void shuffle () {
+        top = 0;
+    }
+
+    public int dealCode () {
+        if (top == codes.length)
+            return -1;
+        if (forcedHead < forcedTail) {
+            int code = forced[forcedHead++];
+            if (forcedHead == forcedTail)
+                forcedHead = forcedTail = 0;
+            take(code);
+            return code;
+        }
+        int j = top + random.nextInt(codes.length - top);
+        int code = codes[j];
+        codes[j] = codes[top];
+        codes[top++] = code;
+        return code;
+    }
+
+    // replay: the next deals return these cards, in order, instead of random ones
+    public void force (int code) {
+        forced[forcedTail++] = code;
+    }
+
+    public int forcedRemaining () {
+        return forcedTail - forcedHead;
+    }
+
+    // rebuilds a deck mid-hand from the cards already out, the rest stays random
+    public void restore (long dealt) {
+        top = 0;
+        forcedHead = forcedTail = 0;
+        for (long m = dealt; m != 0; m &= m - 1)
+            take(Long.numberOfTrailingZeros(m));
+    }
+
+    private void take (int code) {
+        for (int j = top; j < codes.length; ++j) {
+            if (codes[j] == code) {
+                codes[j] = codes[top];
+                codes[top++] = code;
+                return;
+            }
+        }
+        throw new IllegalStateException("Card " + code + " is already dealt");
     }
 
     public Card dealCard () {
-        if (cardList.isEmpty())
-            return null;
-        return cardList.removeFirst();
+        int code = dealCode();
+        return code < 0 ? null : Card.fromCode(code);
+    }
+
+    public int remaining () {
+        return codes.length - top;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,185 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+public class DeltaCodec {
+    // table fields present in a delta
+    private static final int POT = 1;
+    private static final int MAX_BET = 2;
+    private static final int TURN = 4;
+    private static final int DEALER = 8;
+    private static final int FLAGS = 16;
+    private static final int BOARD = 32;
+    private static final int WINNERS = 64;
+    private static final int PLAYER_COUNT = 128;
+
+    // seat fields present in a delta
+    private static final int NAME = 1;
+    private static final int CHIPS = 2;
+    private static final int BET = 4;
+    private static final int SEAT_FLAGS = 8;
+    private static final int HOLE_CARDS = 16;
+    private static final int RESULT = 32;
+    private static final int EQUITY = 64;
+
+    public static void encode(WireWriter w, long baseVersion, long version, GameStateDTO prev, GameStateDTO next) {
+        w.writeByte(BinaryProtocol.DELTA).writeVarLong(baseVersion).writeVarLong(version);
+
+        int mask = (prev.pot != next.pot ? POT : 0)
+                | (prev.currentMaxBet != next.currentMaxBet ? MAX_BET : 0)
+                | (prev.currentPlayerIndex != next.currentPlayerIndex ? TURN : 0)
+                | (prev.dealerIndex != next.dealerIndex ? DEALER : 0)
+                | (BinaryProtocol.tableFlags(prev) != BinaryProtocol.tableFlags(next) ? FLAGS : 0)
+                | (!prev.communityCards.equals(next.communityCards) ? BOARD : 0)
+                | (!prev.winners.equals(next.winners) ? WINNERS : 0)
+                | (prev.players.size() != next.players.size() ? PLAYER_COUNT : 0);
+        w.writeVarInt(mask);
+        if ((mask & POT) != 0)
+            w.writeVarInt(next.pot);
+        if ((mask & MAX_BET) != 0)
+            w.writeVarInt(next.currentMaxBet);
+        if ((mask & TURN) != 0)
+            w.writeSignedVarInt(next.currentPlayerIndex);
+        if ((mask & DEALER) != 0)
+            w.writeSignedVarInt(next.dealerIndex);
+        if ((mask & FLAGS) != 0)
+            w.writeByte(BinaryProtocol.tableFlags(next));
+        if ((mask & BOARD) != 0) {
+            // dealt cards extend the old board, anything else replaces it
+            int kept = commonPrefix(prev.communityCards, next.communityCards);
+            w.writeByte(kept);
+            BinaryProtocol.writeCards(w, next.communityCards.subList(kept, next.communityCards.size()));
+        }
+        if ((mask & WINNERS) != 0) {
+            w.writeVarInt(next.winners.size());
+            for (String winner : next.winners)
+                w.writeString(winner);
+        }
+        if ((mask & PLAYER_COUNT) != 0)
+            w.writeVarInt(next.players.size());
+
+        long board = CardSet.of(next.communityCards);
+        int changed = 0;
+        int[] seatMasks = new int[next.players.size()];
+        for (int i = 0; i < next.players.size(); ++i) {
+            GameStateDTO.PlayerDTO b = next.players.get(i);
+            GameStateDTO.PlayerDTO a = i < prev.players.size() ? prev.players.get(i) : null;
+            seatMasks[i] = a == null ? NAME | CHIPS | BET | SEAT_FLAGS | HOLE_CARDS | RESULT | EQUITY : seatMask(a, b);
+            if (seatMasks[i] != 0)
+                changed++;
+        }
+        w.writeVarInt(changed);
+        for (int i = 0; i < seatMasks.length; ++i) {
+            if (seatMasks[i] != 0)
+                encodeSeat(w, i, seatMasks[i], next.players.get(i), board);
+        }
+    }
+
+    private static int seatMask(GameStateDTO.PlayerDTO a, GameStateDTO.PlayerDTO b) {
+        return (!a.name.equals(b.name) ? NAME : 0)
+                | (a.chips != b.chips ? CHIPS : 0)
+                | (a.currentBet != b.currentBet ? BET : 0)
+                | (BinaryProtocol.seatFlags(a) != BinaryProtocol.seatFlags(b) ? SEAT_FLAGS : 0)
+                | (!Objects.equals(a.holeCards, b.holeCards) ? HOLE_CARDS : 0)
+                | (!sameResult(a.handResult, b.handResult) ? RESULT : 0)
+                | (BinaryProtocol.encodeEquity(a.allInEquity) != BinaryProtocol.encodeEquity(b.allInEquity) ? EQUITY : 0);
+    }
+
+    private static void encodeSeat(WireWriter w, int seat, int mask, GameStateDTO.PlayerDTO p, long board) {
+        w.writeVarInt(seat);
+        w.writeByte(mask);
+        if ((mask & NAME) != 0)
+            w.writeString(p.name);
+        if ((mask & CHIPS) != 0)
+            w.writeVarInt(p.chips);
+        if ((mask & BET) != 0)
+            w.writeVarInt(p.currentBet);
+        if ((mask & SEAT_FLAGS) != 0)
+            w.writeByte(BinaryProtocol.seatFlags(p));
+        if ((mask & HOLE_CARDS) != 0)
+            BinaryProtocol.writeCards(w, p.holeCards);
+        if ((mask & RESULT) != 0)
+            BinaryProtocol.writeResult(w, p.handResult, board | CardSet.of(p.holeCards));
+        if ((mask & EQUITY) != 0)
+            w.writeVarInt(BinaryProtocol.encodeEquity(p.allInEquity));
+    }
+
+    // builds a new state, the base and its players are left untouched
+    public static GameStateDTO apply(WireReader r, GameStateDTO base) throws IOException {
+        GameStateDTO state = new GameStateDTO();
+        int mask = r.readVarInt();
+        state.pot = (mask & POT) != 0 ? r.readVarInt() : base.pot;
+        state.currentMaxBet = (mask & MAX_BET) != 0 ? r.readVarInt() : base.currentMaxBet;
+        state.currentPlayerIndex = (mask & TURN) != 0 ? r.readSignedVarInt() : base.currentPlayerIndex;
+        state.dealerIndex = (mask & DEALER) != 0 ? r.readSignedVarInt() : base.dealerIndex;
+        BinaryProtocol.setTableFlags(state, (mask & FLAGS) != 0 ? r.readByte() : BinaryProtocol.tableFlags(base));
+        if ((mask & BOARD) != 0) {
+            int kept = r.readByte();
+            if (kept > base.communityCards.size())
+                throw new IOException("Bad board delta");
+            state.communityCards = new ArrayList<>(base.communityCards.subList(0, kept));
+            state.communityCards.addAll(BinaryProtocol.readCards(r));
+        } else {
+            state.communityCards = base.communityCards;
+        }
+        if ((mask & WINNERS) != 0) {
+            int count = r.readVarInt();
+            for (int i = 0; i < count; ++i)
+                state.winners.add(r.readString());
+        } else {
+            state.winners = base.winners;
+        }
+        int players = (mask & PLAYER_COUNT) != 0 ? r.readVarInt() : base.players.size();
+        state.players = new ArrayList<>(players);
+        for (int i = 0; i < players; ++i)
+            state.players.add(i < base.players.size() ? base.players.get(i) : null);
+
+        long board = CardSet.of(state.communityCards);
+        int changed = r.readVarInt();
+        for (int i = 0; i < changed; ++i) {
+            int seat = r.readVarInt();
+            if (seat >= players)
+                throw new IOException("Bad seat " + seat);
+            state.players.set(seat, applySeat(r, state.players.get(seat), board));
+        }
+        if (state.players.contains(null))
+            throw new IOException("Incomplete seat delta");
+        return state;
+    }
+
+    private static GameStateDTO.PlayerDTO applySeat(WireReader r, GameStateDTO.PlayerDTO base, long board) throws IOException {
+        GameStateDTO.PlayerDTO p = base != null ? base.copy() : new GameStateDTO.PlayerDTO();
+        int mask = r.readByte();
+        if ((mask & NAME) != 0)
+            p.name = r.readString();
+        if ((mask & CHIPS) != 0)
+            p.chips = r.readVarInt();
+        if ((mask & BET) != 0)
+            p.currentBet = r.readVarInt();
+        if ((mask & SEAT_FLAGS) != 0)
+            BinaryProtocol.setSeatFlags(p, r.readByte());
+        if ((mask & HOLE_CARDS) != 0)
+            p.holeCards = BinaryProtocol.readCards(r);
+        if ((mask & RESULT) != 0)
+            p.handResult = BinaryProtocol.readResult(r, board | CardSet.of(p.holeCards));
+        if ((mask & EQUITY) != 0)
+            p.allInEquity = BinaryProtocol.decodeEquity(r.readVarInt());
+        if (p.name == null)
+            throw new IOException("New seat without a name");
+        return p;
+    }
+
+    private static boolean sameResult(HandResult a, HandResult b) {
+        if (a == null || b == null)
+            return a == b;
+        return a.getScore() == b.getScore() && a.getCards() == b.getCards();
+    }
+
+    private static int commonPrefix(List<Card> a, List<Card> b) {
+        int n = 0;
+        while (n < a.size() && n < b.size() && a.get(n) == b.get(n))
+            n++;
+        return n;
+    }
+}
@@ -0,0 +1,304 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.ThreadLocalRandom;
+
+public class EquityCalculator {
+    private static final int SEQUENTIAL_RUNOUTS = 20_000;
+    private static final int SAMPLE_BATCH = 512;
+
+    private final ForkJoinPool pool;
+    private final long exhaustiveLimit;
+
+    public EquityCalculator() {
+        this(ForkJoinPool.commonPool(), 2_000_000);
+    }
+
+    public EquityCalculator(ForkJoinPool pool, long exhaustiveLimit) {
+        this.pool = pool;
+        this.exhaustiveLimit = exhaustiveLimit;
+    }
+
+    public EquityResult calculate(long[] holes, long board, long dead, long budgetNanos) {
+        Spot spot = new Spot(holes, board, dead);
+        if (spot.runouts() <= exhaustiveLimit)
+            return exhaustive(spot);
+        return monteCarlo(spot, System.nanoTime() + budgetNanos);
+    }
+
+    public EquityResult exhaustive(long[] holes, long board, long dead) {
+        return exhaustive(new Spot(holes, board, dead));
+    }
+
+    public EquityResult exhaustive(long[] holes, long board, long dead, long budgetNanos) {
+        Spot spot = new Spot(holes, board, dead);
+        spot.deadline = System.nanoTime() + budgetNanos;
+        EquityResult result = exhaustive(spot);
+        return spot.expired ? null : result;
+    }
+
+    public EquityResult monteCarlo(long[] holes, long board, long dead, long budgetNanos) {
+        return monteCarlo(new Spot(holes, board, dead), System.nanoTime() + budgetNanos);
+    }
+
+    private EquityResult exhaustive(Spot spot) {
+        Tally tally;
+        if (spot.missing == 0) {
+            tally = new Tally(spot.holes.length);
+            tally.score(spot, spot.board, spot.boardRanks, spot.boardSuits, spot.boardCount);
+        } else if (spot.runouts() < SEQUENTIAL_RUNOUTS) {
+            tally = new Tally(spot.holes.length);
+            enumerate(spot, 0, spot.missing, spot.board, spot.boardRanks, spot.boardSuits, spot.boardCount, tally);
+        } else {
+            tally = pool.invoke(new EnumerationTask(spot, 0, spot.deck.length - spot.missing + 1));
+        }
+        return tally.toResult(true);
+    }
+
+    private EquityResult monteCarlo(Spot spot, long deadline) {
+        if (spot.missing == 0)
+            return exhaustive(spot);
+        int parallelism = pool.getParallelism();
+        List<SamplingTask> tasks = new ArrayList<>(parallelism);
+        for (int i = 0; i < parallelism; ++i)
+            tasks.add(new SamplingTask(spot, deadline));
+        Tally tally = new Tally(spot.holes.length);
+        for (SamplingTask task : tasks)
+            pool.execute(task);
+        for (SamplingTask task : tasks)
+            tally.merge(task.join());
+        return tally.toResult(false);
+    }
+
+    private static void enumerate(Spot spot, int start, int left, long board, long ranks, int suits, int count, Tally tally) {
+        int[] deck = spot.deck;
+        for (int i = start; i <= deck.length - left; ++i) {
+            if (left >= 3 && spot.isExpired())
+                return;
+            int code = deck[i];
+            long nextBoard = board | (1L << code);
+            long nextRanks = ranks + rankBit(code);
+            int nextSuits = suits + suitBit(code);
+            if (left == 1)
+                tally.score(spot, nextBoard, nextRanks, nextSuits, count + 1);
+            else
+                enumerate(spot, i + 1, left - 1, nextBoard, nextRanks, nextSuits, count + 1, tally);
+        }
+    }
+
+    private static long rankBit(int code) {
+        return 1L << LookupHandEvaluator.rankShift(code & 15);
+    }
+
+    private static int suitBit(int code) {
+        return 1 << LookupHandEvaluator.suitShift(code >>> 4);
+    }
+
+    private static long combinations(int n, int k) {
+        long c = 1;
+        for (int i = 0; i < k; ++i)
+            c = c * (n - i) / (i + 1);
+        return c;
+    }
+
+    private static class Spot {
+        final long[] holes;
+        final long[] holeRanks;
+        final int[] holeSuits;
+        final int[] holeCounts;
+        final long board;
+        final long boardRanks;
+        final int boardSuits;
+        final int boardCount;
+        final int missing;
+        final int[] deck;
+        long deadline = Long.MAX_VALUE;
+        volatile boolean expired;
+
+        Spot(long[] holes, long board, long dead) {
+            int boardCount = Long.bitCount(board);
+            if (holes.length < 2 || boardCount > 5)
+                throw new IllegalArgumentException("Need at least 2 players and at most 5 board cards");
+            long used = board | dead;
+            this.holes = holes.clone();
+            this.holeRanks = new long[holes.length];
+            this.holeSuits = new int[holes.length];
+            this.holeCounts = new int[holes.length];
+            for (int i = 0; i < holes.length; ++i) {
+                // the evaluator only knows 5 to 7 cards, so every hand is exactly two
+                if (Long.bitCount(holes[i]) != 2)
+                    throw new IllegalArgumentException("Player " + i + " needs exactly 2 hole cards");
+                if ((used & holes[i]) != 0)
+                    throw new IllegalArgumentException("Card used twice in player " + i + " hand");
+                used |= holes[i];
+                holeCounts[i] = Long.bitCount(holes[i]);
+                for (long m = holes[i]; m != 0; m &= m - 1) {
+                    int code = Long.numberOfTrailingZeros(m);
+                    holeRanks[i] += rankBit(code);
+                    holeSuits[i] += suitBit(code);
+                }
+            }
+            long ranks = 0;
+            int suits = 0;
+            for (long m = board; m != 0; m &= m - 1) {
+                int code = Long.numberOfTrailingZeros(m);
+                ranks += rankBit(code);
+                suits += suitBit(code);
+            }
+            this.board = board;
+            this.boardRanks = ranks;
+            this.boardSuits = suits;
+            this.boardCount = boardCount;
+            this.missing = 5 - boardCount;
+            long available = CardSet.FULL_DECK & ~used;
+            this.deck = new int[Long.bitCount(available)];
+            int n = 0;
+            for (long m = available; m != 0; m &= m - 1)
+                deck[n++] = Long.numberOfTrailingZeros(m);
+            if (deck.length < missing)
+                throw new IllegalArgumentException("Not enough cards left to complete the board");
+        }
+
+        long runouts() {
+            return combinations(deck.length, missing);
+        }
+
+        boolean isExpired() {
+            if (!expired && System.nanoTime() > deadline)
+                expired = true;
+            return expired;
+        }
+    }
+
+    private static class Tally {
+        final long[] wins;
+        final long[] ties;
+        final double[] shares;
+        final int[] scores;
+        long trials;
+
+        Tally(int players) {
+            wins = new long[players];
+            ties = new long[players];
+            shares = new double[players];
+            scores = new int[players];
+        }
+
+        void score(Spot spot, long board, long ranks, int suits, int count) {
+            int best = -1;
+            int bestCount = 0;
+            for (int i = 0; i < scores.length; ++i) {
+                int score = LookupHandEvaluator.evaluate(board | spot.holes[i], ranks + spot.holeRanks[i],
+                        suits + spot.holeSuits[i], count + spot.holeCounts[i]);
+                scores[i] = score;
+                if (score > best) {
+                    best = score;
+                    bestCount = 1;
+                } else if (score == best) {
+                    bestCount++;
+                }
+            }
+            for (int i = 0; i < scores.length; ++i) {
+                if (scores[i] != best)
+                    continue;
+                if (bestCount == 1)
+                    wins[i]++;
+                else
+                    ties[i]++;
+                shares[i] += 1.0 / bestCount;
+            }
+            trials++;
+        }
+
+        void merge(Tally other) {
+            for (int i = 0; i < wins.length; ++i) {
+                wins[i] += other.wins[i];
+                ties[i] += other.ties[i];
+                shares[i] += other.shares[i];
+            }
+            trials += other.trials;
+        }
+
+        EquityResult toResult(boolean exact) {
+            return new EquityResult(wins, ties, shares, trials, exact);
+        }
+    }
+
+    // fork-join tasks are never serialized
+    @SuppressWarnings("serial")
+    private static class EnumerationTask extends RecursiveTask<Tally> {
+        private final Spot spot;
+        private final int from;
+        private final int to;
+
+        EnumerationTask(Spot spot, int from, int to) {
+            this.spot = spot;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Tally compute() {
+            if (to - from > 1) {
+                int mid = (from + to) >>> 1;
+                EnumerationTask left = new EnumerationTask(spot, from, mid);
+                EnumerationTask right = new EnumerationTask(spot, mid, to);
+                ForkJoinTask.invokeAll(left, right);
+                Tally tally = left.join();
+                tally.merge(right.join());
+                return tally;
+            }
+            Tally tally = new Tally(spot.holes.length);
+            if (spot.isExpired())
+                return tally;
+            int code = spot.deck[from];
+            long board = spot.board | (1L << code);
+            long ranks = spot.boardRanks + rankBit(code);
+            int suits = spot.boardSuits + suitBit(code);
+            if (spot.missing == 1)
+                tally.score(spot, board, ranks, suits, spot.boardCount + 1);
+            else
+                enumerate(spot, from + 1, spot.missing - 1, board, ranks, suits, spot.boardCount + 1, tally);
+            return tally;
+        }
+    }
+
+    // fork-join tasks are never serialized
+    @SuppressWarnings("serial")
+    private static class SamplingTask extends RecursiveTask<Tally> {
+        private final Spot spot;
+        private final long deadline;
+
+        SamplingTask(Spot spot, long deadline) {
+            this.spot = spot;
+            this.deadline = deadline;
+        }
+
+        @Override
+        protected Tally compute() {
+            Tally tally = new Tally(spot.holes.length);
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            int[] deck = spot.deck.clone();
+            do {
+                for (int n = 0; n < SAMPLE_BATCH; ++n) {
+                    long board = spot.board;
+                    long ranks = spot.boardRanks;
+                    int suits = spot.boardSuits;
+                    for (int j = 0; j < spot.missing; ++j) {
+                        int r = j + random.nextInt(deck.length - j);
+                        int code = deck[r];
+                        deck[r] = deck[j];
+                        deck[j] = code;
+                        board |= 1L << code;
+                        ranks += rankBit(code);
+                        suits += suitBit(code);
+                    }
+                    tally.score(spot, board, ranks, suits, 5);
+                }
+            } while (System.nanoTime() < deadline);
+            return tally;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+public class EquityResult {
+    private final long[] wins;
+    private final long[] ties;
+    private final double[] shares;
+    private final long trials;
+    private final boolean exact;
+
+    EquityResult(long[] wins, long[] ties, double[] shares, long trials, boolean exact) {
+        this.wins = wins;
+        this.ties = ties;
+        this.shares = shares;
+        this.trials = trials;
+        this.exact = exact;
+    }
+
+    public int getPlayerCount() {
+        return wins.length;
+    }
+
+    public long getTrials() {
+        return trials;
+    }
+
+    public boolean isExact() {
+        return exact;
+    }
+
+    public double getWinPercent(int player) {
+        return percent(wins[player]);
+    }
+
+    public double getTiePercent(int player) {
+        return percent(ties[player]);
+    }
+
+    public double getLosePercent(int player) {
+        return percent(trials - wins[player] - ties[player]);
+    }
+
+    public double getEquity(int player) {
+        return trials == 0 ? 0 : 100.0 * shares[player] / trials;
+    }
+
+    private double percent(long count) {
+        return trials == 0 ? 0 : 100.0 * count / trials;
+    }
+}
@@ -22,7 +22,7 @@ public class GameController {
     private final Pane uiLayer = new Pane();
 
     private final NetworkClient networkClient;
-    private final String playerName;
+    private String playerName;
 
     private HBox communityCardsBox;
     private Label potLabel;
@@ -53,6 +53,9 @@ public class GameController {
 
         if (!networkClient.connect(host, port, playerName)) {
             stage.close();
+        } else {
+            // the table may seat us under a different name if ours is taken
+            this.playerName = networkClient.getPlayerName();
         }
         stage.setOnCloseRequest(e -> networkClient.close());
     }
@@ -159,13 +162,17 @@ public class GameController {
         return b;
     }
 
-    private void hideResults() {
+    private void hideWinner() {
         winnerContainer.setVisible(false);
-        combinationHintLabel.setVisible(false);
         winnerNameLabel.setText("");
         winnerComboLabel.setText("");
     }
 
+    private void hideResults() {
+        hideWinner();
+        combinationHintLabel.setVisible(false);
+    }
+
     private void startCleanupTimer() {
         if (cleanupTimer != null)
             cleanupTimer.stop();
@@ -186,6 +193,7 @@ public class GameController {
                         .findFirst().orElse(null);
             }
 
+            long winningMask = CardSet.of(winningBestFive);
             communityCardsBox.getChildren().clear();
             for (Card card : state.communityCards) {
                 ImageView iv = new ImageView(ImageUtils.getCardImage(
@@ -196,7 +204,7 @@ public class GameController {
                 iv.setPreserveRatio(true);
                 iv.setSmooth(true);
 
-                if (winningBestFive != null && isCardInList(card, winningBestFive)) {
+                if (CardSet.contains(winningMask, card)) {
                     DropShadow goldGlow = new DropShadow();
                     goldGlow.setColor(Color.GOLD);
                     goldGlow.setRadius(25);
@@ -256,17 +264,11 @@ public class GameController {
                 if (cleanupTimer != null) {
                     cleanupTimer.stop();
                 }
-                hideResults();
+                hideWinner();
             }
         });
     }
 
-    private boolean isCardInList(Card target, List<Card> list) {
-        if (list == null) return false;
-        return list.stream().anyMatch(c ->
-                c.getPower() == target.getPower() && c.getSuit() == target.getSuit());
-    }
-
     private void updatePlayers(GameStateDTO state) {
         playersLayer.getChildren().clear();
         int total = state.players.size();
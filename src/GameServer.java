@@ -1,80 +1,52 @@
 import java.io.IOException;
-import java.net.ServerSocket;
+import java.net.InetSocketAddress;
 import java.net.Socket;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
 import java.util.*;
-import java.util.concurrent.CopyOnWriteArrayList;
 
 public class GameServer {
-    private final Table table = new Table();
-    private final List<ClientHandler> clients = new CopyOnWriteArrayList<>();
+    private final TableRegistry tables;
+    private final SessionDirectory sessions;
     private final int startChips;
+    // how long a dropped client that can resume keeps its seat, 0 gives it up right away
+    private final long resumeGraceMillis = ServerConfig.getLong("resumeGraceMs", 60_000);
 
     public GameServer(int startChips) {
-        this.startChips = startChips;
-    }
-
-    private synchronized void cleanDisconnectedPlayers() {
-        table.cleanupDisconnected();
+        this(startChips, new TableRegistry().start());
     }
 
-    private GameStateDTO createDTO(String recipientName) {
-        GameStateDTO dto = new GameStateDTO();
-        dto.pot = table.getPot();
-        dto.currentMaxBet = table.getCurrentMaxBet();
-        dto.currentPlayerIndex = table.getCurrentPlayerIndex();
-        dto.dealerIndex = table.getDealerIndex();
-        dto.communityCards = new ArrayList<>(table.getCommunityCards());
-        dto.isHandInProgress = table.isHandInProgress();
-        dto.isShowdown = table.isShowdown();
-        dto.winners = new ArrayList<>(table.getWinnersNames());
-
-        dto.players = table.getPlayers().stream()
-                .filter(ServerPlayer::isOnline)
-                .map(sp -> {
-                    GameStateDTO.PlayerDTO p = new GameStateDTO.PlayerDTO();
-                    p.name = sp.getName();
-                    p.chips = sp.getChips();
-                    p.currentBet = sp.getCurrentBet();
-                    p.isFolded = sp.isFolded();
-                    p.isAllIn = sp.isAllIn();
-                    p.isWaitingForNextHand = sp.isWaitingForNextHand();
-                    if (dto.isShowdown || sp.getName().equals(recipientName)) {
-                        p.holeCards = new ArrayList<>(sp.getCards());
-                        p.handResult = sp.getCurrentResult();
-                    } else {
-                        p.holeCards = null;
-                        p.handResult = null;
-                    }
-                    return p;
-                }).toList();
-        return dto;
-    }
-
-    public void broadcastState() {
-        clients.forEach(c -> {
-            if (c.getPlayer() != null) {
-                c.sendState(createDTO(c.getPlayer().getName()));
-            }
-        });
+    public GameServer(int startChips, TableRegistry tables) {
+        this.startChips = startChips;
+        this.tables = tables;
+        this.sessions = new SessionDirectory(resumeGraceMillis, this::expireSession);
+        // players of recovered or taken over tables lost their connections with the old process
+        for (GameTable table : tables.getTables())
+            table.seatedPlayers().join().forEach(p -> sessions.hold(p, table));
     }
 
     private void startConsoleThread(Scanner sc) {
         Thread consoleThread = new Thread(() -> {
-            while (sc.hasNext()) {
-                String command = sc.next();
-                if (command.equalsIgnoreCase("run")) {
-                    synchronized (this) {
-                        long onlineCount = table.getPlayers().stream().filter(ServerPlayer::isOnline).count();
-                        if (onlineCount < 2) {
-                            System.out.println("Need at least 2 online players to start!");
-                            System.out.println("Type 'run' to start new hand");
-                            continue;
-                        }
-
-                        cleanDisconnectedPlayers();
-                        table.startNewHand();
-                        System.out.println("ROUND STARTED");
-                        broadcastState();
+            while (sc.hasNextLine()) {
+                String[] command = sc.nextLine().trim().split("\\s+");
+                if (command[0].equalsIgnoreCase("run")) {
+                    if (command.length > 1) {
+                        GameTable table = tables.get(command[1]);
+                        if (table != null)
+                            table.startHand();
+                        else
+                            System.out.println("No table " + command[1]);
+                    } else {
+                        tables.getTables().forEach(GameTable::startHand);
+                    }
+                } else if (command[0].equalsIgnoreCase("tables")) {
+                    tables.describe().forEach(System.out::println);
+                } else if (command[0].equalsIgnoreCase("snapshot")) {
+                    try {
+                        tables.snapshot();
+                        System.out.println("Snapshot written");
+                    } catch (IOException | IllegalStateException e) {
+                        System.out.println("Snapshot failed: " + e.getMessage());
                     }
                 }
             }
@@ -85,74 +57,106 @@ public class GameServer {
 
     public void start() {
         Scanner sc = new Scanner(System.in);
-        System.out.print("Enter port: ");
-        int port = sc.nextInt();
+        int port = ServerConfig.getInt("port", -1);
+        if (port < 0) {
+            System.out.print("Enter port: ");
+            port = Integer.parseInt(sc.nextLine().trim());
+        }
+        start(port, sc);
+    }
 
-        try (ServerSocket serverSocket = new ServerSocket(port)) {
-            System.out.println("Server started on port " + port + ". Type 'run' to start new hand");
-            startConsoleThread(sc);
+    public void start(int port, Scanner sc) {
+        Transport transport = Transport.fromConfig();
+        Thread.Builder connectionThreads = transport.connectionThreads();
+        try (ServerSocketChannel serverChannel = ServerSocketChannel.open()) {
+            serverChannel.bind(new InetSocketAddress(port));
+            System.out.println("Server started on port " + port + " (" + transport.name().toLowerCase() + " threads). Hands deal themselves");
+            System.out.println("Type 'run' or 'run <table>' to deal right away, 'tables' to list them");
+            ServerMetrics.INSTANCE.export(tables);
+            ReplicationPrimary.startFromConfig(tables);
+            Runtime.getRuntime().addShutdownHook(new Thread(tables::closeJournal, "journal-shutdown"));
+            if (sc != null)
+                startConsoleThread(sc);
             while (!Thread.currentThread().isInterrupted()) {
-                Socket s = serverSocket.accept();
-                new Thread(new ClientHandler(s, this)).start();
+                SocketChannel channel = serverChannel.accept();
+                Socket s = channel.socket();
+                s.setTcpNoDelay(true);
+                connectionThreads.start(new ClientHandler(s, this));
             }
         } catch (IOException e) {
             System.err.println("Server error: " + e.getMessage());
         }
     }
 
-    public synchronized ServerPlayer registerPlayer(ClientHandler handler, String name) {
-        table.getPlayers().removeIf(p -> p.getName().equalsIgnoreCase(name));
-        ServerPlayer p = new ServerPlayer(UUID.randomUUID().toString(), name, startChips);
-        table.addPlayer(p);
-        handler.setPlayer(p);
-        clients.add(handler);
-        System.out.println("Connected: " + name);
-        broadcastState();
-        return p;
+    public ServerPlayer registerPlayer(ClientHandler handler, String name) {
+        return registerPlayer(handler, name, null);
     }
 
-    public synchronized void handleAction(String sid, ActionMessage msg) {
-        if (!table.isHandInProgress())
-            return;
+    // null when the requested table is full
+    public ServerPlayer registerPlayer(ClientHandler handler, String name, String tableId) {
+        TableRegistry.Seat seat = tables.reserveSeat(tableId, name);
+        if (seat == null) {
+            System.out.println("Table " + tableId + " is full, rejected " + name);
+            return null;
+        }
+        ServerPlayer p = new ServerPlayer(UUID.randomUUID().toString(), seat.name, startChips);
+        handler.setPlayer(p, seat.table);
+        sessions.open(p, seat.table, handler);
+        seat.table.join(handler, p);
+        return p;
+    }
 
-        List<ServerPlayer> players = table.getPlayers();
-        int currentIndex = table.getCurrentPlayerIndex();
-        if (currentIndex >= 0 && currentIndex < players.size()) {
-            ServerPlayer current = players.get(currentIndex);
-            if (current.getSessionID().equals(sid)) {
-                table.handleAction(msg.action, msg.amount);
-                if (!table.isHandInProgress()) {
-                    System.out.println("ROUND IS OVER. Winners: " + table.getWinnersNames());
-                    System.out.println("Type 'run' to start new hand");
-                }
-                broadcastState();
-            }
+    // null when the session is unknown or already expired, the client then registers anew
+    public ServerPlayer resumePlayer(ClientHandler handler, LoginMessage login) {
+        SessionDirectory.Session session = sessions.get(login.sessionId);
+        if (session == null || !sessions.attach(session, handler)) {
+            System.out.println("Session of " + login.name + " expired, registering anew");
+            return null;
         }
+        handler.setPlayer(session.player, session.table);
+        session.table.reattach(handler, session.player, login.epoch, login.lastVersion);
+        ServerMetrics.INSTANCE.sessionsResumed.increment();
+        return session.player;
     }
 
-    public synchronized void removeClient(ClientHandler h) {
-        ServerPlayer p = h.getPlayer();
-        if (p != null) {
-            p.setOnline(false);
-            p.setFolded(true);
-            System.out.println("Disconnected: " + p.getName());
+    public void handleAction(String sid, ActionMessage msg) {
+        SessionDirectory.Session session = sessions.get(sid);
+        if (session != null)
+            session.table.handleAction(sid, msg);
+    }
 
-            if (table.isHandInProgress()) {
-                long activeCount = table.getPlayers().stream().filter(ServerPlayer::isOnline).count();
-                if (activeCount < 2) {
-                    System.out.println("!!! [EMERGENCY STOP] Not enough players");
-                    System.out.println("Type 'run' to start new hand");
-                    table.cleanupDisconnected();
-                }
-            } else {
-                table.cleanupDisconnected();
-            }
+    public void removeClient(ClientHandler h) {
+        ServerPlayer p = h.getPlayer();
+        if (p == null)
+            return;
+        SessionDirectory.Session session = sessions.get(p.getSessionID());
+        if (session == null)
+            return;
+        if (h.canResume() && resumeGraceMillis > 0) {
+            if (sessions.detach(session, h))
+                session.table.detach(h);
+        } else if (sessions.close(session, h)) {
+            session.table.leave(h);
+            tables.releaseSeat(session.table, p.getName());
         }
-        clients.remove(h);
-        broadcastState();
     }
 
-    public static void main(String[] args) {
-        new GameServer(50).start();
+    private void expireSession(SessionDirectory.Session session) {
+        System.out.println("Session of " + session.player.getName() + " expired");
+        session.table.expire(session.player);
+        tables.releaseSeat(session.table, session.player.getName());
+    }
+
+    TableRegistry getTables() {
+        return tables;
+    }
+
+    // with poker.standbyOf the process shadows a primary and only starts serving once it has taken over
+    public static void main(String[] args) throws InterruptedException {
+        String primary = ServerConfig.get("standbyOf", null);
+        GameServer server = primary != null
+                ? new GameServer(50, ReplicationStandby.fromConfig(primary).awaitTakeover())
+                : new GameServer(50);
+        server.start();
     }
-}
\ No newline at end of file
+}
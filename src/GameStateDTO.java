@@ -25,6 +25,21 @@ public class GameStateDTO implements Serializable {
         public boolean isAllIn;
         public List<Card> holeCards;
         public HandResult handResult;
+        public double allInEquity = -1;
         public boolean isWaitingForNextHand;
+
+        public PlayerDTO copy() {
+            PlayerDTO p = new PlayerDTO();
+            p.name = name;
+            p.chips = chips;
+            p.currentBet = currentBet;
+            p.isFolded = isFolded;
+            p.isAllIn = isAllIn;
+            p.holeCards = holeCards;
+            p.handResult = handResult;
+            p.allInEquity = allInEquity;
+            p.isWaitingForNextHand = isWaitingForNextHand;
+            return p;
+        }
     }
 }
\ No newline at end of file
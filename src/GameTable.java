@@ -0,0 +1,510 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.random.RandomGenerator;
+
+public class GameTable {
+    private static final long ACTION_MILLIS = ServerConfig.getLong("actionMs", 20_000);
+    // a negative delay turns automatic dealing off and leaves it to the console
+    private static final long HAND_DELAY_MILLIS = ServerConfig.getLong("handDelayMs", 3_000);
+    private static final int HAND_STAGGER_MILLIS = ServerConfig.getInt("handStaggerMs", 500);
+    // delta frames kept per table for clients that resume, older gaps get a snapshot
+    private static final int RESUME_HISTORY = Math.max(0, ServerConfig.getInt("resumeHistory", 32));
+    // heads-up preflop is 1.7M run-outs, enumerated on the common pool while the all-in hand waits for it
+    private static final EquityCalculator EQUITY = new EquityCalculator();
+    private static final long ALL_IN_EQUITY_BUDGET = TimeUnit.MILLISECONDS.toNanos(ServerConfig.getLong("allInEquityBudgetMs", 1000));
+    // how long the equity is on show before the board is run out
+    private static final long RUN_OUT_DELAY_MILLIS = ServerConfig.getLong("runOutDelayMs", 1500);
+
+    private final String id;
+    private final int maxSeats;
+    private final Table table;
+    private final SerialExecutor mailbox;
+    private final long dealOffset;
+    // state versions restart with every table instance, a client resuming from another epoch needs a snapshot
+    private final long epoch = ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE;
+
+    // lobby bookkeeping, guarded by this
+    private final Set<String> names = new HashSet<>();
+    private boolean closed;
+
+    // confined to the mailbox
+    private final List<ClientHandler> clients = new ArrayList<>();
+    private final Map<ServerPlayer, Integer> seats = new IdentityHashMap<>();
+    private long stateVersion;
+    private StateBroadcast lastBroadcast;
+    private final ByteBuffer[] history = new ByteBuffer[RESUME_HISTORY];
+    private long historyStart = 1;
+    // action clock: a turn is one hand start or applied action, the clock belongs to whoever has to act in it
+    private long turn;
+    private TimerWheel.Timeout clock;
+    private ServerPlayer clockPlayer;
+    private long clockTurn;
+    private long bankStart;
+    private TimerWheel.Timeout nextHand;
+
+    public GameTable(String id, int maxSeats, RandomGenerator random, Executor pool) {
+        this(id, maxSeats, random, pool, null);
+    }
+
+    public GameTable(String id, int maxSeats, RandomGenerator random, Executor pool, HandJournal journal) {
+        this.id = id;
+        this.maxSeats = maxSeats;
+        this.table = new Table(random);
+        this.mailbox = new SerialExecutor(pool);
+        // a fixed offset per table, so hands that end on the same tick do not all deal on the same tick again
+        this.dealOffset = HAND_STAGGER_MILLIS > 0 ? Math.floorMod(id.hashCode() * 0x9E3779B9, HAND_STAGGER_MILLIS) : 0;
+        if (journal != null)
+            table.setJournal(journal, journal.registerTable(id, 0));
+    }
+
+    // recovery runs these before the table is published, so nothing else touches it yet
+    void restore(WireReader r) throws IOException {
+        table.readSnapshot(r);
+        reseat();
+    }
+
+    void replay(List<HandJournal.Record> records) {
+        table.replay(records);
+        reseat();
+    }
+
+    void attachJournal(HandJournal journal) {
+        table.setJournal(journal, journal.registerTable(id, table.getJournalSeq()));
+    }
+
+    // a table taken over has nobody acting on it until its clock and dealer run again
+    void resume() {
+        mailbox.execute(() -> {
+            armClock();
+            scheduleNextHand();
+            // the server stopped between an all-in and its run-out
+            if (table.isRunOutPending())
+                scheduleRunOut();
+        });
+    }
+
+    // recovered players keep their seats until they come back or the table lets them go
+    private synchronized void reseat() {
+        names.clear();
+        for (ServerPlayer p : table.getPlayers()) {
+            if (p.isOnline())
+                names.add(p.getName().toLowerCase());
+        }
+    }
+
+    public CompletableFuture<byte[]> snapshot() {
+        CompletableFuture<byte[]> snapshot = new CompletableFuture<>();
+        mailbox.execute(() -> {
+            WireWriter w = new WireWriter(512);
+            w.writeString(id);
+            w.writeVarInt(table.getJournalKey());
+            table.writeSnapshot(w);
+            snapshot.complete(w.toByteArray());
+        });
+        return snapshot;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public long getEpoch() {
+        return epoch;
+    }
+
+    public int getMaxSeats() {
+        return maxSeats;
+    }
+
+    // returns the name the player sits under, or null when the table is full or closed
+    public synchronized String reserveSeat(String name) {
+        if (closed || names.size() >= maxSeats)
+            return null;
+        String seatName = name;
+        for (int n = 2; names.contains(seatName.toLowerCase()); ++n)
+            seatName = name + " (" + n + ")";
+        names.add(seatName.toLowerCase());
+        return seatName;
+    }
+
+    // returns true when the table became empty and will take no more players
+    public synchronized boolean releaseSeat(String name) {
+        names.remove(name.toLowerCase());
+        if (names.isEmpty())
+            closed = true;
+        return closed;
+    }
+
+    public synchronized boolean isClosed() {
+        return closed;
+    }
+
+    public synchronized int getSeatedCount() {
+        return names.size();
+    }
+
+    public void join(ClientHandler handler, ServerPlayer player) {
+        mailbox.execute(() -> {
+            table.addPlayer(player);
+            clients.add(handler);
+            System.out.println("[" + id + "] Connected: " + player.getName());
+            broadcastState();
+        });
+    }
+
+    public void handleAction(String sid, ActionMessage msg) {
+        long queued = ServerMetrics.start();
+        mailbox.execute(() -> {
+            ServerMetrics.stop(ServerMetrics.INSTANCE.actionWait, queued);
+            long start = ServerMetrics.start();
+            applyAction(sid, msg);
+            ServerMetrics.stop(ServerMetrics.INSTANCE.action, start);
+        });
+    }
+
+    public void leave(ClientHandler handler) {
+        mailbox.execute(() -> removeClient(handler));
+    }
+
+    // the connection dropped but the player keeps the seat, the action clock plays for them meanwhile
+    public void detach(ClientHandler handler) {
+        mailbox.execute(() -> {
+            if (clients.remove(handler))
+                System.out.println("[" + id + "] Connection lost, holding seat: " + handler.getPlayer().getName());
+        });
+    }
+
+    // the grace period ran out without a resume
+    public void expire(ServerPlayer player) {
+        mailbox.execute(() -> {
+            if (table.getPlayers().contains(player) && player.isOnline())
+                removeSeat(player);
+        });
+    }
+
+    // a resumed session gets the deltas it missed while they are still kept, otherwise one snapshot
+    public void reattach(ClientHandler handler, ServerPlayer player, long epoch, long lastVersion) {
+        mailbox.execute(() -> {
+            // a connection the client gave up on may not have noticed yet
+            for (ClientHandler c : clients) {
+                if (c.getPlayer() == player)
+                    c.disconnect();
+            }
+            clients.removeIf(c -> c.getPlayer() == player);
+            // the seat may have gone with a stopped hand while the session was still held
+            if (!table.getPlayers().contains(player)) {
+                handler.disconnect();
+                return;
+            }
+            clients.add(handler);
+            System.out.println("[" + id + "] Resumed: " + player.getName());
+            if (lastBroadcast == null) {
+                broadcastState();
+                return;
+            }
+            handler.resume(epoch == this.epoch ? missedSince(lastVersion) : null, lastBroadcast,
+                    privateView(player, lastBroadcast.getPublicState()));
+        });
+    }
+
+    // null when the gap reaches further back than the history
+    private List<ByteBuffer> missedSince(long version) {
+        // with no history kept every resume gets a snapshot
+        if (history.length == 0 || version < historyStart - 1 || version > stateVersion)
+            return null;
+        List<ByteBuffer> missed = new ArrayList<>();
+        for (long v = version + 1; v <= stateVersion; ++v)
+            missed.add(history[(int) (v % history.length)].duplicate());
+        return missed;
+    }
+
+    public CompletableFuture<List<ServerPlayer>> seatedPlayers() {
+        CompletableFuture<List<ServerPlayer>> players = new CompletableFuture<>();
+        mailbox.execute(() -> players.complete(new ArrayList<>(table.getPlayers())));
+        return players;
+    }
+
+    public void startHand() {
+        mailbox.execute(this::tryStartHand);
+    }
+
+    private long onlineCount() {
+        return table.getPlayers().stream().filter(ServerPlayer::isOnline).count();
+    }
+
+    private void tryStartHand() {
+        if (onlineCount() < 2) {
+            System.out.println("[" + id + "] Need at least 2 online players to start!");
+            return;
+        }
+        if (nextHand != null) {
+            nextHand.cancel();
+            nextHand = null;
+        }
+        table.cleanupDisconnected();
+        table.startNewHand();
+        turn++;
+        System.out.println("[" + id + "] ROUND STARTED");
+        broadcastState();
+    }
+
+    private void applyAction(String sid, ActionMessage msg) {
+        if (!table.isHandInProgress())
+            return;
+
+        List<ServerPlayer> players = table.getPlayers();
+        int currentIndex = table.getCurrentPlayerIndex();
+        if (currentIndex >= 0 && currentIndex < players.size()) {
+            ServerPlayer current = players.get(currentIndex);
+            if (current.getSessionID().equals(sid)) {
+                table.handleAction(msg.action, msg.amount);
+                turn++;
+                ServerMetrics.INSTANCE.actions.increment();
+                if (!table.isHandInProgress())
+                    handOver();
+                broadcastState();
+            }
+        }
+    }
+
+    private void handOver() {
+        ServerMetrics.INSTANCE.handsCompleted.increment();
+        System.out.println("[" + id + "] ROUND IS OVER. Winners: " + table.getWinnersNames());
+    }
+
+    private void removeClient(ClientHandler h) {
+        if (clients.remove(h))
+            removeSeat(h.getPlayer());
+    }
+
+    private void removeSeat(ServerPlayer p) {
+        // a player who leaves on their turn folds now instead of holding the table for their clock and time bank
+        if (p == currentPlayer()) {
+            System.out.println("[" + id + "] " + p.getName() + " left on their turn, FOLD");
+            applyAction(p.getSessionID(), new ActionMessage(PlayerAction.FOLD, 0));
+        }
+        boolean stopped = table.removePlayer(p);
+        System.out.println("[" + id + "] Disconnected: " + p.getName());
+        if (stopped) {
+            System.out.println("[" + id + "] !!! [EMERGENCY STOP] Not enough players");
+        }
+        broadcastState();
+    }
+
+    GameStateDTO createDTO(String recipientName) {
+        long start = ServerMetrics.start();
+        GameStateDTO dto = new GameStateDTO();
+        dto.pot = table.getPot();
+        dto.currentMaxBet = table.getCurrentMaxBet();
+        dto.currentPlayerIndex = table.getCurrentPlayerIndex();
+        dto.dealerIndex = table.getDealerIndex();
+        dto.communityCards = new ArrayList<>(table.getCommunityCards());
+        dto.isHandInProgress = table.isHandInProgress();
+        dto.isShowdown = table.isShowdown();
+        dto.winners = new ArrayList<>(table.getWinnersNames());
+
+        dto.players = table.getPlayers().stream()
+                .filter(ServerPlayer::isOnline)
+                .map(sp -> {
+                    GameStateDTO.PlayerDTO p = new GameStateDTO.PlayerDTO();
+                    p.name = sp.getName();
+                    p.chips = sp.getChips();
+                    p.currentBet = sp.getCurrentBet();
+                    p.isFolded = sp.isFolded();
+                    p.isAllIn = sp.isAllIn();
+                    p.isWaitingForNextHand = sp.isWaitingForNextHand();
+                    p.allInEquity = sp.getAllInEquity();
+                    if (dto.isShowdown || sp.getName().equals(recipientName)) {
+                        p.holeCards = new ArrayList<>(sp.getCards());
+                        p.handResult = sp.getCurrentResult();
+                        if (p.handResult == null && dto.isHandInProgress)
+                            p.handResult = sp.getHandTracker().getResult();
+                    } else {
+                        p.holeCards = null;
+                        p.handResult = null;
+                    }
+                    return p;
+                }).toList();
+        ServerMetrics.stop(ServerMetrics.INSTANCE.createDTO, start);
+        return dto;
+    }
+
+    private void broadcastState() {
+        Table.AllInSpot allIn = table.takeAllInSpot();
+        if (allIn != null)
+            computeEquity(allIn);
+        long start = ServerMetrics.start();
+        GameStateDTO publicState = createDTO(null);
+        StateBroadcast broadcast = new StateBroadcast(++stateVersion, publicState, lastBroadcast);
+        lastBroadcast = broadcast;
+        remember(broadcast);
+        seats.clear();
+        for (ServerPlayer sp : table.getPlayers()) {
+            if (sp.isOnline())
+                seats.put(sp, seats.size());
+        }
+        for (ClientHandler c : clients)
+            c.sendState(broadcast, privateView(c.getPlayer(), publicState));
+        ServerMetrics.INSTANCE.broadcasts.increment();
+        ServerMetrics.stop(ServerMetrics.INSTANCE.broadcast, start);
+        armClock();
+        scheduleNextHand();
+    }
+
+    // the all-in goes out right away with the board unfinished, the equity follows in its own state and the run-out
+    // after that, so nobody sees the outcome before the odds
+    private void computeEquity(Table.AllInSpot spot) {
+        CompletableFuture.supplyAsync(() -> EQUITY.exhaustive(spot.holes, spot.board, 0, ALL_IN_EQUITY_BUDGET))
+                .whenComplete((result, e) -> {
+                    if (e != null)
+                        System.err.println("[" + id + "] Equity failed: " + e.getMessage());
+                    mailbox.execute(() -> showEquity(spot, e == null ? result : null));
+                });
+    }
+
+    // null when the enumeration ran over its budget, the board is then run out without it
+    private void showEquity(Table.AllInSpot spot, EquityResult result) {
+        // the hand may have ended early since
+        if (table.getHandNumber() != spot.hand || !table.isRunOutPending())
+            return;
+        if (result == null) {
+            runOut(spot.hand);
+            return;
+        }
+        for (int i = 0; i < spot.holes.length; ++i)
+            spot.players.get(i).setAllInEquity(result.getEquity(i));
+        broadcastState();
+        scheduleRunOut();
+    }
+
+    private void scheduleRunOut() {
+        long hand = table.getHandNumber();
+        TimerWheel.SERVER.schedule(RUN_OUT_DELAY_MILLIS, () -> mailbox.execute(() -> runOut(hand)));
+    }
+
+    private void runOut(long hand) {
+        if (table.getHandNumber() != hand || !table.isRunOutPending())
+            return;
+        table.runOut();
+        turn++;
+        handOver();
+        broadcastState();
+    }
+
+    // deals HAND_DELAY_MILLIS after the last hand settled, as soon as two players with chips are seated
+    private void scheduleNextHand() {
+        if (HAND_DELAY_MILLIS < 0 || nextHand != null || table.isHandInProgress() || eligibleCount() < 2)
+            return;
+        nextHand = TimerWheel.SERVER.schedule(HAND_DELAY_MILLIS + dealOffset, () -> mailbox.execute(this::dealScheduledHand));
+    }
+
+    private void dealScheduledHand() {
+        nextHand = null;
+        if (!table.isHandInProgress() && eligibleCount() >= 2)
+            tryStartHand();
+    }
+
+    private long eligibleCount() {
+        return table.getPlayers().stream().filter(p -> p.isOnline() && p.getChips() > 0).count();
+    }
+
+    private void remember(StateBroadcast broadcast) {
+        if (history.length == 0)
+            return;
+        ByteBuffer delta = broadcast.deltaFrame();
+        if (delta == null) {
+            historyStart = broadcast.getVersion() + 1;
+            return;
+        }
+        history[(int) (broadcast.getVersion() % history.length)] = delta;
+        historyStart = Math.max(historyStart, broadcast.getVersion() - history.length + 1);
+    }
+
+    // the player to act gets ACTION_MILLIS, then what is left of their time bank, before the table acts for them
+    // null between hands
+    private ServerPlayer currentPlayer() {
+        int index = table.getCurrentPlayerIndex();
+        if (table.isHandInProgress() && index >= 0 && index < table.getPlayers().size())
+            return table.getPlayers().get(index);
+        return null;
+    }
+
+    private void armClock() {
+        ServerPlayer current = currentPlayer();
+        if (current == clockPlayer && turn == clockTurn)
+            return;
+        stopClock();
+        if (current == null || ACTION_MILLIS <= 0)
+            return;
+        clockPlayer = current;
+        clockTurn = turn;
+        clock = scheduleClock(ACTION_MILLIS, current, turn);
+    }
+
+    private TimerWheel.Timeout scheduleClock(long millis, ServerPlayer player, long clockTurn) {
+        return TimerWheel.SERVER.schedule(millis, () -> mailbox.execute(() -> clockExpired(player, clockTurn)));
+    }
+
+    private void stopClock() {
+        if (clock != null)
+            clock.cancel();
+        if (bankStart != 0)
+            clockPlayer.useTimeBank(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - bankStart));
+        clock = null;
+        clockPlayer = null;
+        bankStart = 0;
+    }
+
+    private void clockExpired(ServerPlayer player, long expiredTurn) {
+        // the turn moved on while the expiry was queued behind it
+        if (player != clockPlayer || expiredTurn != clockTurn || !table.isHandInProgress())
+            return;
+        // the time bank is there to think, not to wait for a dropped connection that may come back
+        if (bankStart == 0 && player.getTimeBank() > 0 && isConnected(player)) {
+            bankStart = System.nanoTime();
+            System.out.println("[" + id + "] " + player.getName() + " is on the time bank: " + player.getTimeBank() + " ms");
+            clock = scheduleClock(player.getTimeBank(), player, expiredTurn);
+            return;
+        }
+        PlayerAction action = player.getCurrentBet() >= table.getCurrentMaxBet() ? PlayerAction.CHECK : PlayerAction.FOLD;
+        System.out.println("[" + id + "] " + player.getName() + " ran out of time, " + action);
+        ServerMetrics.INSTANCE.actionTimeouts.increment();
+        applyAction(player.getSessionID(), new ActionMessage(action, 0));
+    }
+
+    private boolean isConnected(ServerPlayer player) {
+        for (ClientHandler c : clients) {
+            if (c.getPlayer() == player)
+                return true;
+        }
+        return false;
+    }
+
+    private PrivateView privateView(ServerPlayer sp, GameStateDTO publicState) {
+        Integer seat = seats.get(sp);
+        if (seat == null || publicState.isShowdown)
+            return PrivateView.NONE;
+        HandResult result = sp.getCurrentResult();
+        if (result == null && publicState.isHandInProgress)
+            result = sp.getHandTracker().getResult();
+        return new PrivateView(seat, new ArrayList<>(sp.getCards()), result);
+    }
+
+    public int getPendingCount() {
+        return mailbox.getPendingCount();
+    }
+
+    Table getTable() {
+        return table;
+    }
+}
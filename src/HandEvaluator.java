@@ -1,20 +1,32 @@
 import java.util.List;
 import java.util.ArrayList;
-import java.util.stream.Collectors;
 
 public class HandEvaluator {
-    private static List<Card> pick(List<Card> cards, int rank, int count, List<Card> avoid) {
-        List<Card> found = new ArrayList<>();
+    private static final long[] POWERS = {1, 15, 225, 3375, 50625, 759375};
+    private static final int[][] PATTERNS = {
+            {1, 1, 1, 1, 1},
+            {2, 1, 1, 1},
+            {2, 2, 1},
+            {3, 1, 1},
+            null,
+            null,
+            null,
+            {3, 2},
+            {4, 1}
+    };
+
+    private static void pick(long cards, int rank, int count, List<Card> best) {
         int target = (rank == 1) ? 14 : rank;
-        for (Card c : cards) {
-            if (found.size() < count && c.getPower().getRank() == target && !avoid.contains(c)) {
-                found.add(c);
+        for (int s = 0; s < 4 && count > 0; ++s) {
+            int code = s << 4 | target;
+            if ((cards & (1L << code)) != 0) {
+                best.add(Card.fromCode(code));
+                count--;
             }
         }
-        return found;
     }
 
-    private static int getStraightHighest (int bitmask) {
+    static int getStraightHighest (int bitmask) {
         for (int i=14; i>=5; --i)
             if ((bitmask & (0x1F << (i-4))) == (0x1F << (i-4)))
                 return i;
@@ -23,7 +35,7 @@ public class HandEvaluator {
         return 0;
     }
 
-    private static List<Integer> getKickers (int[] counts, int ex1, int ex2, int need) {
+    static List<Integer> getKickers (int[] counts, int ex1, int ex2, int need) {
         List<Integer> k = new ArrayList<>();
         for (int r=14; r>=2; --r) {
             if (r == ex1 || r == ex2)
@@ -34,47 +46,78 @@ public class HandEvaluator {
         return k;
     }
 
-    private static long score (int category, int... r) {
-        long s = category * (long)Math.pow(15, 5);
+    static long score (int category, int... r) {
+        long s = category * POWERS[5];
         for (int i = 0; i < r.length; ++i)
-            s += r[i] * (long)Math.pow(15, 4-i);
+            s += r[i] * POWERS[4-i];
         return s;
     }
 
-    public static HandResult evaluate (List<Card> originalCards) {
-        List<Card> cards = new ArrayList<>(originalCards);
-        cards.sort((c1,c2)->Integer.compare(c2.getPower().getRank(), c1.getPower().getRank()));
+    static int category (long score) {
+        return (int) (score / POWERS[5]);
+    }
+
+    private static int digit (long score, int i) {
+        return (int) (score / POWERS[4-i] % 15);
+    }
+
+    private static long suitCards (long cards, int suit) {
+        return cards & (0xFFFFL << (suit << 4));
+    }
+
+    private static long flushCards (long cards) {
+        for (int s=0; s<4; ++s) {
+            long suited = suitCards(cards, s);
+            if (Long.bitCount(suited) >= 5)
+                return suited;
+        }
+        return 0;
+    }
+
+    public static List<Card> bestFive (long cards, long score) {
+        List<Card> best = new ArrayList<>(5);
+        int category = category(score);
+        if (category == 4 || category >= 9) {
+            long pool = (category == 4) ? cards : flushCards(cards);
+            int high = digit(score, 0);
+            for (int r = high; r > high - 5; r--)
+                pick(pool, r, 1, best);
+        } else if (category == 6) {
+            long pool = flushCards(cards);
+            for (int r = 14; r >= 2 && best.size() < 5; --r)
+                pick(pool, r, 1, best);
+        } else {
+            int[] pattern = PATTERNS[category];
+            for (int i = 0; i < pattern.length; ++i)
+                pick(cards, digit(score, i), pattern[i], best);
+        }
+        return best;
+    }
+
+    public static HandResult evaluate (List<Card> cards) {
         int[] rankCount = new int[15];
         int[] suitCount = new int[4];
+        int[] suitMask = new int[4];
         int bitmask = 0;
+        long mask = 0;
         for (Card c: cards) {
-            suitCount[c.getSuit().ordinal()]++;
+            int s = c.getSuit().ordinal();
+            suitCount[s]++;
+            suitMask[s] |= (1<<c.getPower().getRank());
             rankCount[c.getPower().getRank()]++;
             bitmask |= (1<<c.getPower().getRank());
+            mask |= c.getMask();
         }
+        return new HandResult(evaluateScore(rankCount, suitCount, suitMask, bitmask), mask);
+    }
 
+    private static long evaluateScore (int[] rankCount, int[] suitCount, int[] suitMask, int bitmask) {
         for (int s=0; s<4; ++s) {
             if (suitCount[s] >= 5) {
-                final int suitIdx = s;
-                List<Card> flushCards = cards.stream()
-                        .filter(c -> c.getSuit().ordinal() == suitIdx)
-                        .collect(Collectors.toList());
-
-                int fMask = 0;
-                for (Card c : flushCards)
-                    fMask |= (1 << c.getPower().getRank());
-
-                int sf = getStraightHighest(fMask);
-                if (sf > 0) {
-                    List<Card> best = new ArrayList<>();
-                    for (int r = sf; r > sf - 5; r--)
-                        best.addAll(pick(flushCards, r, 1, best));
-                    HandRank hr = (sf == 14) ? HandRank.ROYAL_FLUSH : HandRank.STRAIGHT_FLUSH;
-                    return new HandResult(hr, score(hr == HandRank.ROYAL_FLUSH ? 10 : 9, sf), hr.name(), best);
-                }
-
-                List<Card> best = flushCards.subList(0, 5);
-                return new HandResult(HandRank.FLUSH, score(6, best.getFirst().getPower().getRank()), "Флеш", best);
+                int sf = getStraightHighest(suitMask[s]);
+                if (sf > 0)
+                    return score(sf == 14 ? 10 : 9, sf);
+                return score(6, 31 - Integer.numberOfLeadingZeros(suitMask[s]));
             }
         }
 
@@ -89,55 +132,33 @@ public class HandEvaluator {
                 pairs.add(r);
         }
 
-        if (quad > 0) {
-            List<Card> best = pick(cards, quad, 4, new ArrayList<>());
-            List<Integer> k = getKickers(rankCount, quad, -1, 1);
-            best.addAll(pick(cards, k.getFirst(), 1, best));
-            return new HandResult(HandRank.FOUR_OF_A_KIND, score(8, quad, k.getFirst()), "Каре", best);
-        }
+        if (quad > 0)
+            return score(8, quad, getKickers(rankCount, quad, -1, 1).getFirst());
 
-        if (trip > 0 && !pairs.isEmpty()) {
-            List<Card> best = pick(cards, trip, 3, new ArrayList<>());
-            best.addAll(pick(cards, pairs.getFirst(), 2, best));
-            return new HandResult(HandRank.FULL_HOUSE, score(7, trip, pairs.getFirst()), "Фулл-хаус", best);
-        }
+        if (trip > 0 && !pairs.isEmpty())
+            return score(7, trip, pairs.getFirst());
 
         int st = getStraightHighest(bitmask);
-        if (st > 0) {
-            List<Card> best = new ArrayList<>();
-            for (int r = st; r > st - 5; r--)
-                best.addAll(pick(cards, r, 1, best));
-            return new HandResult(HandRank.STRAIGHT, score(4, st), "Стрит", best);
-        }
+        if (st > 0)
+            return score(4, st);
 
         if (trip > 0) {
-            List<Card> best = pick(cards, trip, 3, new ArrayList<>());
             List<Integer> k = getKickers(rankCount, trip, -1, 2);
-            for (int r : k)
-                best.addAll(pick(cards, r, 1, best));
-            return new HandResult(HandRank.THREE_OF_A_KIND, score(3, trip, k.get(0), k.get(1)), "Сет", best);
+            return score(3, trip, k.get(0), k.get(1));
         }
 
         if (pairs.size() >= 2) {
             int p1 = pairs.get(0), p2 = pairs.get(1);
-            List<Card> best = pick(cards, p1, 2, new ArrayList<>());
-            best.addAll(pick(cards, p2, 2, best));
-            int k = getKickers(rankCount, p1, p2, 1).getFirst();
-            best.addAll(pick(cards, k, 1, best));
-            return new HandResult(HandRank.TWO_PAIRS, score(2, p1, p2, k), "Две пары", best);
+            return score(2, p1, p2, getKickers(rankCount, p1, p2, 1).getFirst());
         }
 
         if (pairs.size() == 1) {
             int p = pairs.getFirst();
-            List<Card> best = pick(cards, p, 2, new ArrayList<>());
             List<Integer> k = getKickers(rankCount, p, -1, 3);
-            for (int r : k)
-                best.addAll(pick(cards, r, 1, best));
-            return new HandResult(HandRank.PAIR, score(1, p, k.get(0), k.get(1), k.get(2)), "Пара", best);
+            return score(1, p, k.get(0), k.get(1), k.get(2));
         }
 
-        List<Card> best = cards.subList(0, 5);
         List<Integer> k = getKickers(rankCount, -1, -1, 5);
-        return new HandResult(HandRank.HIGH_CARD, score(0, k.get(0), k.get(1), k.get(2), k.get(3), k.get(4)), "Высшая карта", best);
+        return score(0, k.get(0), k.get(1), k.get(2), k.get(3), k.get(4));
     }
-}
\ No newline at end of file
+}
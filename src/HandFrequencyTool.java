@@ -0,0 +1,187 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public class HandFrequencyTool {
+    private static final int CATEGORIES = 11;
+    private static final int MAX_SCORE = (int) HandEvaluator.score(CATEGORIES, 0);
+
+    public enum Engine {
+        INCREMENTAL,
+        LOOKUP,
+        REFERENCE
+    }
+
+    public static class Report {
+        final long[] counts = new long[CATEGORIES];
+        final long[] classes = new long[CATEGORIES];
+        long hands;
+        long mismatches;
+        long firstMismatch = -1;
+        long elapsedNanos;
+
+        void merge(Report other) {
+            for (int i = 0; i < CATEGORIES; ++i)
+                counts[i] += other.counts[i];
+            hands += other.hands;
+            mismatches += other.mismatches;
+            if (firstMismatch < 0)
+                firstMismatch = other.firstMismatch;
+        }
+
+        public long getHands() {
+            return hands;
+        }
+
+        public long getCount(HandRank rank) {
+            return counts[rank.getCategory()];
+        }
+
+        public long getClasses(HandRank rank) {
+            return classes[rank.getCategory()];
+        }
+
+        public long getMismatches() {
+            return mismatches;
+        }
+
+        public double getHandsPerSecond() {
+            return hands * 1e9 / elapsedNanos;
+        }
+
+        public void print() {
+            long totalClasses = 0;
+            System.out.printf("%-16s %12s %9s %8s%n", "Hand", "Count", "Percent", "Classes");
+            for (int i = HandRank.values().length - 1; i >= 0; --i) {
+                HandRank rank = HandRank.values()[i];
+                System.out.printf("%-16s %12d %8.4f%% %8d%n", rank, getCount(rank), 100.0 * getCount(rank) / hands, getClasses(rank));
+                totalClasses += getClasses(rank);
+            }
+            System.out.printf("%-16s %12d %9s %8d%n", "TOTAL", hands, "", totalClasses);
+            if (mismatches > 0)
+                System.out.println("MISMATCHES: " + mismatches + ", first hand " + CardSet.toList(firstMismatch).stream()
+                        .map(c -> c.getPower() + " " + c.getSuit()).toList());
+            System.out.printf("Elapsed %.2f s, %.1f M hands/sec%n", elapsedNanos / 1e9, getHandsPerSecond() / 1e6);
+        }
+    }
+
+    private final Engine engine;
+    private final boolean verify;
+    private final int[] deck = new int[52];
+    private final AtomicLongArray seen = new AtomicLongArray((MAX_SCORE >>> 6) + 1);
+
+    public HandFrequencyTool(Engine engine, boolean verify) {
+        this.engine = engine;
+        this.verify = verify;
+        int n = 0;
+        for (long m = CardSet.FULL_DECK; m != 0; m &= m - 1)
+            deck[n++] = Long.numberOfTrailingZeros(m);
+    }
+
+    public Report run(ForkJoinPool pool) {
+        long start = System.nanoTime();
+        Report report = pool.invoke(new EnumerationTask(0, 52 * 52));
+        report.elapsedNanos = System.nanoTime() - start;
+        for (int score = 0; score < MAX_SCORE; ++score) {
+            if ((seen.get(score >>> 6) & (1L << score)) != 0)
+                report.classes[HandEvaluator.category(score)]++;
+        }
+        return report;
+    }
+
+    private int score(long cards, long ranks, int suits) {
+        return switch (engine) {
+            case INCREMENTAL -> LookupHandEvaluator.evaluate(cards, ranks, suits, 7);
+            case LOOKUP -> LookupHandEvaluator.evaluate(cards);
+            case REFERENCE -> (int) HandEvaluator.evaluate(CardSet.toList(cards)).getScore();
+        };
+    }
+
+    private void record(long cards, long ranks, int suits, Report report) {
+        int score = score(cards, ranks, suits);
+        report.counts[HandEvaluator.category(score)]++;
+        report.hands++;
+        int word = score >>> 6;
+        long bit = 1L << score;
+        if ((seen.get(word) & bit) == 0)
+            seen.getAndAccumulate(word, bit, (a, b) -> a | b);
+        if (verify && HandEvaluator.evaluate(CardSet.toList(cards)).getScore() != score) {
+            if (report.mismatches++ == 0)
+                report.firstMismatch = cards;
+        }
+    }
+
+    private void enumerate(int start, int left, long cards, long ranks, int suits, Report report) {
+        for (int i = start; i <= deck.length - left; ++i) {
+            int code = deck[i];
+            long nextCards = cards | (1L << code);
+            long nextRanks = ranks + (1L << LookupHandEvaluator.rankShift(code & 15));
+            int nextSuits = suits + (1 << LookupHandEvaluator.suitShift(code >>> 4));
+            if (left == 1)
+                record(nextCards, nextRanks, nextSuits, report);
+            else
+                enumerate(i + 1, left - 1, nextCards, nextRanks, nextSuits, report);
+        }
+    }
+
+    // fork-join tasks are never serialized
+    @SuppressWarnings("serial")
+    private class EnumerationTask extends RecursiveTask<Report> {
+        private final int from;
+        private final int to;
+
+        EnumerationTask(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Report compute() {
+            if (to - from > 1) {
+                int mid = (from + to) >>> 1;
+                EnumerationTask left = new EnumerationTask(from, mid);
+                EnumerationTask right = new EnumerationTask(mid, to);
+                ForkJoinTask.invokeAll(left, right);
+                Report report = left.join();
+                report.merge(right.join());
+                return report;
+            }
+            Report report = new Report();
+            int first = from / 52, second = from % 52;
+            if (second <= first || second > deck.length - 6)
+                return report;
+            int c1 = deck[first], c2 = deck[second];
+            long cards = (1L << c1) | (1L << c2);
+            long ranks = (1L << LookupHandEvaluator.rankShift(c1 & 15)) + (1L << LookupHandEvaluator.rankShift(c2 & 15));
+            int suits = (1 << LookupHandEvaluator.suitShift(c1 >>> 4)) + (1 << LookupHandEvaluator.suitShift(c2 >>> 4));
+            enumerate(second + 1, 5, cards, ranks, suits, report);
+            return report;
+        }
+    }
+
+    public static void main(String[] args) {
+        Engine engine = Engine.INCREMENTAL;
+        boolean verify = false;
+        int threads = Runtime.getRuntime().availableProcessors();
+        for (int i = 0; i < args.length; ++i) {
+            switch (args[i]) {
+                case "--verify" -> verify = true;
+                case "--threads" -> threads = Integer.parseInt(args[++i]);
+                default -> engine = Engine.valueOf(args[i].toUpperCase());
+            }
+        }
+
+        System.out.println("Enumerating all 7-card hands with " + engine + " on " + threads + " threads"
+                + (verify ? ", checking against HandEvaluator" : ""));
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            Report report = new HandFrequencyTool(engine, verify).run(pool);
+            report.print();
+            if (report.getMismatches() > 0)
+                System.exit(1);
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,474 @@
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+public class HandJournal implements Runnable, AutoCloseable {
+    public static final int TABLE = 1;
+    public static final int HAND = 2;
+    public static final int SEAT = 3;
+    public static final int DEAL = 4;
+    public static final int BOARD = 5;
+    public static final int ACTION = 6;
+    public static final int PAYOUT = 7;
+    public static final int END = 8;
+    public static final int LEAVE = 9;
+    public static final int JOIN = 10;
+
+    private static final String[] TYPE_NAMES = {"", "TABLE", "HAND", "SEAT", "DEAL", "BOARD", "ACTION", "PAYOUT", "END", "LEAVE", "JOIN"};
+    private static final int BATCH = 256;
+
+    // preallocated slots, filled in place by the tables and drained by the writer thread
+    private static class Slot {
+        int type;
+        int table;
+        long seq;
+        long hand;
+        long value;
+        int seat;
+        int a;
+        int b;
+        String text;
+        String session;
+    }
+
+    private final Path dir;
+    private final long segmentSize;
+    private final long forceNanos;
+    private final Slot[] ring;
+    private final int mask;
+    private final AtomicLongArray published;
+    private final AtomicLong claimed = new AtomicLong();
+    private final AtomicLong consumed = new AtomicLong();
+    private final AtomicInteger nextTableKey = new AtomicInteger();
+    private final WireWriter record = new WireWriter(256);
+    private final Thread writer;
+    private volatile boolean sleeping;
+    private volatile boolean closed;
+
+    private int segmentNumber;
+    private FileChannel segmentFile;
+    private MappedByteBuffer segment;
+    private long lastForce = System.nanoTime();
+    private boolean dirty;
+    private volatile long position;
+
+    private HandJournal(Path dir, int ringSize, long segmentSize, long forceMillis) throws IOException {
+        if (Integer.bitCount(ringSize) != 1)
+            throw new IllegalArgumentException("Ring size must be a power of two");
+        this.dir = Files.createDirectories(dir);
+        this.segmentSize = segmentSize;
+        this.forceNanos = TimeUnit.MILLISECONDS.toNanos(forceMillis);
+        this.ring = new Slot[ringSize];
+        for (int i = 0; i < ringSize; ++i)
+            ring[i] = new Slot();
+        this.mask = ringSize - 1;
+        this.published = new AtomicLongArray(ringSize);
+        for (int i = 0; i < ringSize; ++i)
+            published.set(i, -1);
+        // a restarted server never writes into the segments of an earlier run
+        for (Path segmentPath : segments(dir))
+            segmentNumber = Math.max(segmentNumber, segmentNumber(segmentPath));
+        openSegment();
+        position = (long) segmentNumber << 32;
+        this.writer = new Thread(this, "hand-journal");
+        writer.setDaemon(true);
+    }
+
+    public static HandJournal start(Path dir, int ringSize, long segmentSize, long forceMillis) throws IOException {
+        HandJournal journal = new HandJournal(dir, ringSize, segmentSize, forceMillis);
+        journal.writer.start();
+        return journal;
+    }
+
+    // null when poker.journalDir is not set
+    public static HandJournal fromConfig() throws IOException {
+        String dir = ServerConfig.get("journalDir", null);
+        if (dir == null)
+            return null;
+        return start(Path.of(dir), ServerConfig.getInt("journalRing", 1 << 16),
+                ServerConfig.getLong("journalSegmentMb", 64) << 20, ServerConfig.getLong("journalForceMs", 200));
+    }
+
+    // seq numbers the records of one table so replay can skip what a snapshot already holds,
+    // a table registers with seq 0 when it is new and with its last seq when it was recovered
+    public int registerTable(String id, long seq) {
+        int key = nextTableKey.incrementAndGet();
+        append(TABLE, key, seq, 0, 0, 0, 0, 0, id, null);
+        return key;
+    }
+
+    public void hand(int table, long seq, long hand, int dealer) {
+        append(HAND, table, seq, hand, System.currentTimeMillis(), dealer, 0, 0, null, null);
+    }
+
+    public void seat(int table, long seq, long hand, int seat, int chips, boolean waiting, String name) {
+        append(SEAT, table, seq, hand, 0, seat, chips, waiting ? 1 : 0, name, null);
+    }
+
+    public void deal(int table, long seq, long hand, int seat, Card card) {
+        append(DEAL, table, seq, hand, 0, seat, card.getCode(), 0, null, null);
+    }
+
+    public void board(int table, long seq, long hand, Card card) {
+        append(BOARD, table, seq, hand, 0, 0, card.getCode(), 0, null, null);
+    }
+
+    public void action(int table, long seq, long hand, int seat, PlayerAction action, int amount) {
+        append(ACTION, table, seq, hand, 0, seat, action.ordinal(), amount, null, null);
+    }
+
+    public void payout(int table, long seq, long hand, int seat, int amount) {
+        append(PAYOUT, table, seq, hand, 0, seat, amount, 0, null, null);
+    }
+
+    public void end(int table, long seq, long hand) {
+        append(END, table, seq, hand, 0, 0, 0, 0, null, null);
+    }
+
+    public void leave(int table, long seq, long hand, int seat) {
+        append(LEAVE, table, seq, hand, 0, seat, 0, 0, null, null);
+    }
+
+    public void join(int table, long seq, long hand, int seat, int chips, String name, String session) {
+        append(JOIN, table, seq, hand, 0, seat, chips, 0, name, session);
+    }
+
+    // lock-free for any number of producers, waits only when the writer is a whole ring behind
+    private void append(int type, int table, long seq, long hand, long value, int seat, int a, int b, String text, String session) {
+        long sequence = claimed.getAndIncrement();
+        while (sequence - consumed.get() >= ring.length) {
+            LockSupport.unpark(writer);
+            Thread.onSpinWait();
+        }
+        Slot slot = ring[(int) sequence & mask];
+        slot.type = type;
+        slot.table = table;
+        slot.seq = seq;
+        slot.hand = hand;
+        slot.value = value;
+        slot.seat = seat;
+        slot.a = a;
+        slot.b = b;
+        slot.text = text;
+        slot.session = session;
+        published.setRelease((int) sequence & mask, sequence);
+        if (sleeping)
+            LockSupport.unpark(writer);
+    }
+
+    @Override
+    public void run() {
+        long next = 0;
+        while (true) {
+            int drained = 0;
+            while (drained < BATCH && published.getAcquire((int) next & mask) == next) {
+                Slot slot = ring[(int) next & mask];
+                write(slot);
+                slot.text = null;
+                slot.session = null;
+                consumed.lazySet(++next);
+                drained++;
+            }
+            if (drained > 0)
+                position = ((long) segmentNumber << 32) | segment.position();
+            long now = System.nanoTime();
+            if (dirty && now - lastForce >= forceNanos) {
+                segment.force();
+                dirty = false;
+                lastForce = now;
+            }
+            if (drained > 0)
+                continue;
+            if (closed && next == claimed.get())
+                break;
+            sleeping = true;
+            if (published.getAcquire((int) next & mask) != next)
+                LockSupport.parkNanos(this, forceNanos);
+            sleeping = false;
+        }
+        closeSegment();
+    }
+
+    private void write(Slot slot) {
+        record.reset();
+        record.writeByte(slot.type);
+        record.writeVarInt(slot.table);
+        record.writeVarLong(slot.seq);
+        if (slot.type == TABLE)
+            record.writeString(slot.text);
+        else
+            record.writeVarLong(slot.hand);
+        switch (slot.type) {
+            case HAND -> {
+                record.writeVarLong(slot.value);
+                record.writeVarInt(slot.seat);
+            }
+            case SEAT -> {
+                record.writeVarInt(slot.seat);
+                record.writeVarInt(slot.a);
+                record.writeBoolean(slot.b != 0);
+                record.writeString(slot.text);
+            }
+            case DEAL, PAYOUT -> {
+                record.writeVarInt(slot.seat);
+                record.writeVarInt(slot.a);
+            }
+            case ACTION -> {
+                record.writeVarInt(slot.seat);
+                record.writeVarInt(slot.a);
+                record.writeVarInt(slot.b);
+            }
+            case BOARD -> record.writeVarInt(slot.a);
+            case LEAVE -> record.writeVarInt(slot.seat);
+            case JOIN -> {
+                record.writeVarInt(slot.seat);
+                record.writeVarInt(slot.a);
+                record.writeString(slot.text);
+                record.writeString(slot.session);
+            }
+        }
+        int size = record.size();
+        // one spare byte keeps a zero type after the last record, which ends the segment for readers
+        if (segment.remaining() < size + 1)
+            rollSegment();
+        int position = segment.position();
+        byte[] bytes = record.array();
+        // the type byte goes in last so a record torn by a crash reads as the end of the segment
+        segment.put(position + 1, bytes, 1, size - 1);
+        segment.put(position, bytes[0]);
+        segment.position(position + size);
+        dirty = true;
+    }
+
+    private void openSegment() throws IOException {
+        Path path = dir.resolve(String.format("journal-%06d.log", ++segmentNumber));
+        segmentFile = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        segment = segmentFile.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+    }
+
+    private void rollSegment() {
+        closeSegment();
+        try {
+            openSegment();
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot open journal segment: " + e.getMessage(), e);
+        }
+    }
+
+    // a finished segment is cut down to its records, so readers and replication never copy the unused tail
+    private void closeSegment() {
+        try {
+            // the mapped pages reach the file before the file shrinks under them, nothing touches them afterwards
+            segment.force();
+            segmentFile.truncate(segment.position() + 1);
+        } catch (IOException e) {
+            System.err.println("Journal truncate failed: " + e.getMessage());
+        } finally {
+            try {
+                segmentFile.close();
+            } catch (IOException e) {
+                System.err.println("Journal close failed: " + e.getMessage());
+            }
+        }
+    }
+
+    public Path getDir() {
+        return dir;
+    }
+
+    // segment number in the high half, offset in the low half; every record appended later lands at or after it
+    public long getPosition() {
+        return position;
+    }
+
+    public long getPending() {
+        return claimed.get() - consumed.get();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(writer);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public static class Record {
+        public final int type;
+        public final String table;
+        public final long seq;
+        public final long hand;
+        public final long time;
+        public final int seat;
+        public final int a;
+        public final int b;
+        public final String text;
+        public final String session;
+
+        Record(int type, String table, long seq, long hand, long time, int seat, int a, int b, String text, String session) {
+            this.type = type;
+            this.table = table;
+            this.seq = seq;
+            this.hand = hand;
+            this.time = time;
+            this.seat = seat;
+            this.a = a;
+            this.b = b;
+            this.text = text;
+            this.session = session;
+        }
+
+        public Card getCard() {
+            return Card.fromCode(a);
+        }
+
+        public PlayerAction getAction() {
+            return PlayerAction.values()[a];
+        }
+
+        @Override
+        public String toString() {
+            String prefix = table + " #" + hand + " " + TYPE_NAMES[type];
+            return switch (type) {
+                case TABLE -> TYPE_NAMES[type] + " " + table;
+                case HAND -> prefix + " dealer " + seat + " at " + Instant.ofEpochMilli(time);
+                case SEAT -> prefix + " " + seat + " " + text + " chips " + a + (b != 0 ? " waiting" : "");
+                case DEAL -> prefix + " seat " + seat + " " + getCard().getPower() + " " + getCard().getSuit();
+                case BOARD -> prefix + " " + getCard().getPower() + " " + getCard().getSuit();
+                case ACTION -> prefix + " seat " + seat + " " + getAction() + (b != 0 ? " " + b : "");
+                case PAYOUT -> prefix + " seat " + seat + " wins " + a;
+                case LEAVE -> prefix + " seat " + seat;
+                case JOIN -> prefix + " seat " + seat + " " + text + " chips " + a;
+                default -> prefix;
+            };
+        }
+    }
+
+    private static int segmentNumber(Path path) {
+        String name = path.getFileName().toString();
+        return Integer.parseInt(name.substring("journal-".length(), name.length() - ".log".length()));
+    }
+
+    static List<Path> segments(Path dir) throws IOException {
+        if (!Files.isDirectory(dir))
+            return List.of();
+        try (Stream<Path> files = Files.list(dir)) {
+            List<Path> segments = new ArrayList<>(files
+                    .filter(p -> p.getFileName().toString().matches("journal-\\d+\\.log"))
+                    .toList());
+            segments.sort((x, y) -> Integer.compare(segmentNumber(x), segmentNumber(y)));
+            return segments;
+        }
+    }
+
+    public static void read(Path dir, Consumer<Record> sink) throws IOException {
+        read(dir, 0, Long.MAX_VALUE, new HashMap<>(), sink);
+    }
+
+    // replays records in write order between two positions taken with getPosition, resolving table keys
+    // to ids; tables registered before the start have to be passed in
+    public static void read(Path dir, long from, long to, Map<Integer, String> tables, Consumer<Record> sink) throws IOException {
+        for (byte[] chunk : readRange(dir, from, to))
+            parse(new WireReader(chunk), tables, sink);
+    }
+
+    // the raw bytes between two positions, one array per segment
+    static List<byte[]> readRange(Path dir, long from, long to) throws IOException {
+        int fromSegment = (int) (from >>> 32), toSegment = (int) (to >>> 32);
+        List<byte[]> chunks = new ArrayList<>();
+        for (Path path : segments(dir)) {
+            int number = segmentNumber(path);
+            if (number < fromSegment)
+                continue;
+            if (number > toSegment || (number == toSegment && (int) to == 0))
+                break;
+            try (FileChannel file = FileChannel.open(path, StandardOpenOption.READ)) {
+                int offset = number == fromSegment ? (int) from : 0;
+                int limit = number == toSegment ? (int) to : (int) file.size();
+                byte[] chunk = new byte[Math.max(0, limit - offset)];
+                file.map(FileChannel.MapMode.READ_ONLY, offset, chunk.length).get(chunk);
+                chunks.add(chunk);
+            }
+        }
+        return chunks;
+    }
+
+    // a zero type byte marks the end of a segment's records
+    static void parse(WireReader r, Map<Integer, String> tables, Consumer<Record> sink) throws IOException {
+        while (r.remaining() > 0) {
+            int type = r.readByte();
+            if (type == 0)
+                break;
+            int key = r.readVarInt();
+            long seq = r.readVarLong();
+            if (type == TABLE) {
+                String id = r.readString();
+                // keys restart with every server run, which also starts a new segment and registers its tables again
+                tables.put(key, id);
+                sink.accept(new Record(type, id, seq, 0, 0, 0, 0, 0, null, null));
+                continue;
+            }
+            String table = tables.get(key);
+            long hand = r.readVarLong();
+            Record rec = switch (type) {
+                case HAND -> {
+                    long time = r.readVarLong();
+                    yield new Record(type, table, seq, hand, time, r.readVarInt(), 0, 0, null, null);
+                }
+                case SEAT -> {
+                    int seat = r.readVarInt();
+                    int chips = r.readVarInt();
+                    boolean waiting = r.readBoolean();
+                    yield new Record(type, table, seq, hand, 0, seat, chips, waiting ? 1 : 0, r.readString(), null);
+                }
+                case DEAL, PAYOUT -> {
+                    int seat = r.readVarInt();
+                    yield new Record(type, table, seq, hand, 0, seat, r.readVarInt(), 0, null, null);
+                }
+                case ACTION -> {
+                    int seat = r.readVarInt();
+                    int action = r.readVarInt();
+                    yield new Record(type, table, seq, hand, 0, seat, action, r.readVarInt(), null, null);
+                }
+                case BOARD -> new Record(type, table, seq, hand, 0, 0, r.readVarInt(), 0, null, null);
+                case END -> new Record(type, table, seq, hand, 0, 0, 0, 0, null, null);
+                case LEAVE -> new Record(type, table, seq, hand, 0, r.readVarInt(), 0, 0, null, null);
+                case JOIN -> {
+                    int seat = r.readVarInt();
+                    int chips = r.readVarInt();
+                    String name = r.readString();
+                    yield new Record(type, table, seq, hand, 0, seat, chips, 0, name, r.readString());
+                }
+                default -> throw new IOException("Unknown journal record " + type);
+            };
+            sink.accept(rec);
+        }
+    }
+
+    // prints a journal, optionally only one table: HandJournal <dir> [table]
+    public static void main(String[] args) throws IOException {
+        String table = args.length > 1 ? args[1] : null;
+        read(Path.of(args[0]), rec -> {
+            if (table == null || table.equals(rec.table))
+                System.out.println(rec);
+        });
+    }
+}
@@ -1,12 +1,39 @@
 public enum HandRank {
-    HIGH_CARD,
-    PAIR,
-    TWO_PAIRS,
-    THREE_OF_A_KIND,
-    STRAIGHT,
-    FLUSH,
-    FULL_HOUSE,
-    FOUR_OF_A_KIND,
-    STRAIGHT_FLUSH,
-    ROYAL_FLUSH
-}
\ No newline at end of file
+    HIGH_CARD(0, "Высшая карта"),
+    PAIR(1, "Пара"),
+    TWO_PAIRS(2, "Две пары"),
+    THREE_OF_A_KIND(3, "Сет"),
+    STRAIGHT(4, "Стрит"),
+    FLUSH(6, "Флеш"),
+    FULL_HOUSE(7, "Фулл-хаус"),
+    FOUR_OF_A_KIND(8, "Каре"),
+    STRAIGHT_FLUSH(9, "STRAIGHT_FLUSH"),
+    ROYAL_FLUSH(10, "ROYAL_FLUSH");
+
+    private static final HandRank[] BY_CATEGORY = new HandRank[11];
+
+    static {
+        for (HandRank rank : values())
+            BY_CATEGORY[rank.category] = rank;
+    }
+
+    private final int category;
+    private final String description;
+
+    HandRank (int category, String description) {
+        this.category = category;
+        this.description = description;
+    }
+
+    public int getCategory() {
+        return category;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public static HandRank fromCategory(int category) {
+        return BY_CATEGORY[category];
+    }
+}
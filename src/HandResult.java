@@ -1,33 +1,37 @@
 import java.io.Serializable;
 import java.util.List;
-import java.util.ArrayList;
 
 public class HandResult implements Comparable<HandResult>, Serializable {
-    private final HandRank rank;
+    private static final long serialVersionUID = 1L;
+
     private final long score;
-    private final String description;
-    private final List<Card> bestFive;
+    private final long cards;
+    private transient List<Card> bestFive;
 
-    public HandResult(HandRank rank, long score, String description, List<Card> bestFive) {
-        this.rank = rank;
+    public HandResult(long score, long cards) {
         this.score = score;
-        this.description = description;
-        this.bestFive = new ArrayList<>(bestFive);
+        this.cards = cards;
     }
 
     public HandRank getRank() {
-        return rank;
+        return HandRank.fromCategory(HandEvaluator.category(score));
     }
 
     public long getScore() {
         return score;
     }
 
+    public long getCards() {
+        return cards;
+    }
+
     public String getDescription() {
-        return description;
+        return getRank().getDescription();
     }
 
     public List<Card> getBestFive() {
+        if (bestFive == null)
+            bestFive = HandEvaluator.bestFive(cards, score);
         return bestFive;
     }
 
@@ -36,4 +40,4 @@ public class HandResult implements Comparable<HandResult>, Serializable {
     {
         return Long.compare(this.score,other.score);
     }
-}
\ No newline at end of file
+}
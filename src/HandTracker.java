@@ -0,0 +1,49 @@
+public class HandTracker {
+    private long cards;
+    private long rankHistogram;
+    private int suitHistogram;
+    private int count;
+    private int strength = -1;
+    private HandResult result;
+
+    public void reset() {
+        cards = 0;
+        rankHistogram = 0;
+        suitHistogram = 0;
+        count = 0;
+        strength = -1;
+        result = null;
+    }
+
+    public void add(Card card) {
+        long bit = card.getMask();
+        if ((cards & bit) != 0)
+            return;
+        int code = card.getCode();
+        cards |= bit;
+        rankHistogram += 1L << LookupHandEvaluator.rankShift(code & 15);
+        suitHistogram += 1 << LookupHandEvaluator.suitShift(code >>> 4);
+        count++;
+        result = null;
+        if (count >= 5)
+            strength = LookupHandEvaluator.evaluate(cards, rankHistogram, suitHistogram, count);
+    }
+
+    public long getCards() {
+        return cards;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public int getStrength() {
+        return strength;
+    }
+
+    public HandResult getResult() {
+        if (result == null && strength >= 0)
+            result = new HandResult(strength, cards);
+        return result;
+    }
+}
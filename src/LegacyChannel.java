@@ -0,0 +1,77 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+public class LegacyChannel implements ProtocolChannel {
+    private final ObjectOutputStream out;
+    private final ObjectInputStream in;
+    private final CountingOutputStream counter;
+
+    public LegacyChannel(ObjectOutputStream out, InputStream in, CountingOutputStream counter) throws IOException {
+        this.out = out;
+        this.in = new ObjectInputStream(in);
+        this.counter = counter;
+    }
+
+    private Object readObject() throws IOException {
+        try {
+            return in.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new ProtocolException(e.getMessage());
+        }
+    }
+
+    @Override
+    public LoginMessage readLogin() throws IOException {
+        return readObject() instanceof String name ? new LoginMessage(name, null) : null;
+    }
+
+    @Override
+    public ActionMessage readAction() throws IOException {
+        return readObject() instanceof ActionMessage action ? action : null;
+    }
+
+    @Override
+    public void writeWelcome(ServerPlayer player, GameTable table) {
+    }
+
+    @Override
+    public void writeState(StateBroadcast broadcast, PrivateView view) throws IOException {
+        out.reset();
+        out.writeObject(view.applyTo(broadcast.getPublicState()));
+        out.flush();
+    }
+
+    @Override
+    public long getBytesWritten() {
+        return counter.getCount();
+    }
+
+    @Override
+    public boolean sendsHeartbeats() {
+        return false;
+    }
+
+    @Override
+    public void writeHeartbeat() {
+    }
+
+    @Override
+    public boolean canResume() {
+        return false;
+    }
+
+    // every state already goes out in full
+    @Override
+    public void dropDeltaBase() {
+    }
+
+    @Override
+    public void writeResume(List<ByteBuffer> missed, StateBroadcast latest, PrivateView view) throws IOException {
+        writeState(latest, view);
+    }
+}
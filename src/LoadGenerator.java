@@ -0,0 +1,182 @@
+import java.io.IOException;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+public class LoadGenerator {
+    private final String host;
+    private final int port;
+    private final BotStrategy strategy;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder connected = new LongAdder();
+    private final LongAdder actions = new LongAdder();
+    private final LongAdder hands = new LongAdder();
+    private final List<Bot> bots = new ArrayList<>();
+    private volatile boolean stopping;
+
+    public LoadGenerator(String host, int port, BotStrategy strategy) {
+        this.host = host;
+        this.port = port;
+        this.strategy = strategy;
+    }
+
+    private class Bot implements Runnable {
+        private final String name;
+        private final String tableId;
+        private final boolean countsHands;
+        private final SplittableRandom random;
+        private final BinaryClient client = new BinaryClient(this::onState);
+        private boolean wasInHand;
+        private long sentVersion;
+        private long sentAt;
+
+        Bot(String name, String tableId, boolean countsHands, SplittableRandom random) {
+            this.name = name;
+            this.tableId = tableId;
+            this.countsHands = countsHands;
+            this.random = random;
+        }
+
+        @Override
+        public void run() {
+            try {
+                client.connect(host, port, name, tableId);
+                connected.increment();
+                client.readLoop();
+            } catch (IOException e) {
+                if (!stopping)
+                    System.err.println(name + ": " + e.getMessage());
+            } finally {
+                client.close();
+            }
+        }
+
+        // runs on the bot's reader thread, one state at a time
+        private void onState(GameStateDTO state) {
+            long version = client.getStateVersion();
+            if (sentAt != 0 && version > sentVersion) {
+                latency.record(System.nanoTime() - sentAt);
+                sentAt = 0;
+            }
+            // one seat per table counts hands so every hand is counted once
+            if (countsHands && wasInHand && !state.isHandInProgress)
+                hands.increment();
+            wasInHand = state.isHandInProgress;
+
+            int current = state.currentPlayerIndex;
+            if (sentAt != 0 || !state.isHandInProgress || current < 0 || current >= state.players.size())
+                return;
+            GameStateDTO.PlayerDTO me = state.players.get(current);
+            if (!me.name.equals(client.getPlayerName()))
+                return;
+            ActionMessage action = strategy.decide(state, me, random);
+            sentVersion = version;
+            sentAt = System.nanoTime();
+            try {
+                client.sendAction(action.action, action.amount);
+                actions.increment();
+            } catch (IOException e) {
+                client.close();
+            }
+        }
+    }
+
+    public void start(int botCount, int botsPerTable) {
+        SplittableRandom seeds = new SplittableRandom(ServerConfig.getLong("loadSeed", 1));
+        for (int i = 0; i < botCount; ++i) {
+            Bot bot = new Bot("bot" + i, "load" + (i / botsPerTable), i % botsPerTable == 0, seeds.split());
+            bots.add(bot);
+            Thread.ofVirtual().name(bot.name).start(bot);
+        }
+    }
+
+    public void report(int seconds) throws InterruptedException {
+        LatencyHistogram total = new LatencyHistogram();
+        long lastActions = 0, lastHands = 0, lastBytes = 0;
+        for (int t = 1; t <= seconds; ++t) {
+            Thread.sleep(1000);
+            LatencyHistogram interval = latency.drain();
+            total.add(interval);
+            long totalActions = actions.sum(), totalHands = hands.sum(), totalBytes = bytesReceived();
+            System.out.printf("%4ds connected=%d actions/s=%d hands/s=%d rx=%.1f KB/s latency p50=%.1fus p99=%.1fus max=%.1fus%n",
+                    t, connected.sum(), totalActions - lastActions, totalHands - lastHands, (totalBytes - lastBytes) / 1024.0,
+                    interval.getPercentile(50) / 1e3, interval.getPercentile(99) / 1e3, interval.getMax() / 1e3);
+            lastActions = totalActions;
+            lastHands = totalHands;
+            lastBytes = totalBytes;
+        }
+        System.out.printf("TOTAL %d bots, %.1f actions/s, %.1f hands/s, %.1f KB/s received%n", connected.sum(),
+                (double) actions.sum() / seconds, (double) hands.sum() / seconds, bytesReceived() / 1024.0 / seconds);
+        System.out.println("Action to broadcast latency: " + total.summary());
+    }
+
+    private long bytesReceived() {
+        long sum = 0;
+        for (Bot bot : bots)
+            sum += bot.client.getBytesReceived();
+        return sum;
+    }
+
+    public void stop() {
+        stopping = true;
+        for (Bot bot : bots)
+            bot.client.close();
+    }
+
+    // runs a server in this JVM whose tables deal again right after every hand, unless configured otherwise
+    private static void startEmbeddedServer(int port, int startChips, long dealMillis) throws InterruptedException {
+        if (System.getProperty("poker.handDelayMs") == null)
+            System.setProperty("poker.handDelayMs", String.valueOf(dealMillis));
+        if (System.getProperty("poker.handStaggerMs") == null)
+            System.setProperty("poker.handStaggerMs", "10");
+        if (System.getProperty("poker.runOutDelayMs") == null)
+            System.setProperty("poker.runOutDelayMs", "0");
+        GameServer server = new GameServer(startChips);
+        Thread serverThread = new Thread(() -> server.start(port, null), "embedded-server");
+        serverThread.setDaemon(true);
+        serverThread.start();
+        for (int attempt = 0; ; ++attempt) {
+            try {
+                new Socket("localhost", port).close();
+                return;
+            } catch (IOException e) {
+                if (attempt == 100)
+                    throw new IllegalStateException("Embedded server did not start on port " + port);
+                Thread.sleep(50);
+            }
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        String host = "localhost";
+        int port = ServerConfig.getInt("port", 7000);
+        int botCount = 100;
+        int botsPerTable = 6;
+        int seconds = 30;
+        BotStrategy strategy = BotStrategy.RANDOM;
+        boolean embedded = false;
+        for (int i = 0; i < args.length; ++i) {
+            switch (args[i]) {
+                case "--host" -> host = args[++i];
+                case "--port" -> port = Integer.parseInt(args[++i]);
+                case "--bots" -> botCount = Integer.parseInt(args[++i]);
+                case "--per-table" -> botsPerTable = Integer.parseInt(args[++i]);
+                case "--seconds" -> seconds = Integer.parseInt(args[++i]);
+                case "--strategy" -> strategy = BotStrategy.valueOf(args[++i].toUpperCase());
+                case "--embedded" -> embedded = true;
+                default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        if (embedded)
+            startEmbeddedServer(port, ServerConfig.getInt("loadStartChips", 1_000_000), ServerConfig.getLong("loadDealMs", 1));
+        System.out.println("Starting " + botCount + " " + strategy + " bots, " + botsPerTable + " per table, against "
+                + host + ":" + port);
+        LoadGenerator generator = new LoadGenerator(host, port, strategy);
+        generator.start(botCount, botsPerTable);
+        generator.report(seconds);
+        generator.stop();
+    }
+}
@@ -0,0 +1,21 @@
+public class LoginMessage {
+    public String name;
+    // null lets the lobby pick a table
+    public String tableId;
+    // set when the client resumes a session, the table then catches it up from lastVersion
+    public String sessionId;
+    public long epoch;
+    public long lastVersion = -1;
+
+    public LoginMessage(String name, String tableId) {
+        this.name = name;
+        this.tableId = tableId;
+    }
+
+    public LoginMessage(String name, String tableId, String sessionId, long epoch, long lastVersion) {
+        this(name, tableId);
+        this.sessionId = sessionId;
+        this.epoch = epoch;
+        this.lastVersion = lastVersion;
+    }
+}
@@ -0,0 +1,151 @@
+import java.util.List;
+
+public class LookupHandEvaluator {
+    // cards come as a CardSet mask: 16 bits per suit, bit index = rank
+    // rank histogram: 3 bits per rank starting at TWO, suit histogram: 4 bits per suit
+    private static final int RANKS = 13;
+    private static final int MAX_CARDS = 7;
+    private static final int[] FLUSH = new int[1 << RANKS];
+    private static final int[][] NON_FLUSH = new int[MAX_CARDS + 1][];
+    private static final int[] HASH_OFFSET = new int[RANKS * 5 * (MAX_CARDS + 1)];
+
+    static {
+        int[][] combos = new int[RANKS + 1][MAX_CARDS + 1];
+        combos[0][0] = 1;
+        for (int n = 1; n <= RANKS; ++n)
+            for (int k = 0; k <= MAX_CARDS; ++k)
+                for (int d = 0; d <= 4 && d <= k; ++d)
+                    combos[n][k] += combos[n - 1][k - d];
+
+        for (int pos = 0; pos < RANKS; ++pos)
+            for (int d = 0; d <= 4; ++d)
+                for (int k = 0; k <= MAX_CARDS; ++k) {
+                    int offset = 0;
+                    for (int e = 0; e < d && e <= k; ++e)
+                        offset += combos[RANKS - pos - 1][k - e];
+                    HASH_OFFSET[(pos * 5 + d) * (MAX_CARDS + 1) + k] = offset;
+                }
+
+        for (int k = 5; k <= MAX_CARDS; ++k) {
+            NON_FLUSH[k] = new int[combos[RANKS][k]];
+            fillNonFlush(new int[15], 14, k, k);
+        }
+
+        for (int ranks = 0; ranks < FLUSH.length; ++ranks) {
+            int n = Integer.bitCount(ranks);
+            if (n < 5 || n > MAX_CARDS)
+                continue;
+            int mask = ranks << 2;
+            int sf = HandEvaluator.getStraightHighest(mask);
+            if (sf > 0)
+                FLUSH[ranks] = (int) HandEvaluator.score(sf == 14 ? 10 : 9, sf);
+            else
+                FLUSH[ranks] = (int) HandEvaluator.score(6, 31 - Integer.numberOfLeadingZeros(mask));
+        }
+    }
+
+    private static void fillNonFlush(int[] counts, int rank, int left, int total) {
+        if (rank < 2) {
+            if (left != 0)
+                return;
+            long histogram = 0;
+            for (int r = 2; r <= 14; ++r)
+                histogram |= (long) counts[r] << rankShift(r);
+            NON_FLUSH[total][hash(histogram, total)] = (int) nonFlushScore(counts);
+            return;
+        }
+        for (int c = 0; c <= 4 && c <= left; ++c) {
+            counts[rank] = c;
+            fillNonFlush(counts, rank - 1, left - c, total);
+        }
+        counts[rank] = 0;
+    }
+
+    private static long nonFlushScore(int[] counts) {
+        int bitmask = 0;
+        int quad = 0, trip = 0, pair1 = 0, pair2 = 0;
+        for (int r = 14; r >= 2; --r) {
+            if (counts[r] > 0)
+                bitmask |= 1 << r;
+            if (counts[r] == 4)
+                quad = r;
+            else if (counts[r] == 3 && trip == 0)
+                trip = r;
+            else if (counts[r] >= 2) {
+                if (pair1 == 0)
+                    pair1 = r;
+                else if (pair2 == 0)
+                    pair2 = r;
+            }
+        }
+
+        if (quad > 0)
+            return HandEvaluator.score(8, quad, HandEvaluator.getKickers(counts, quad, -1, 1).getFirst());
+        if (trip > 0 && pair1 > 0)
+            return HandEvaluator.score(7, trip, pair1);
+        int st = HandEvaluator.getStraightHighest(bitmask);
+        if (st > 0)
+            return HandEvaluator.score(4, st);
+        if (trip > 0) {
+            List<Integer> k = HandEvaluator.getKickers(counts, trip, -1, 2);
+            return HandEvaluator.score(3, trip, k.get(0), k.get(1));
+        }
+        if (pair2 > 0)
+            return HandEvaluator.score(2, pair1, pair2, HandEvaluator.getKickers(counts, pair1, pair2, 1).getFirst());
+        if (pair1 > 0) {
+            List<Integer> k = HandEvaluator.getKickers(counts, pair1, -1, 3);
+            return HandEvaluator.score(1, pair1, k.get(0), k.get(1), k.get(2));
+        }
+        List<Integer> k = HandEvaluator.getKickers(counts, -1, -1, 5);
+        return HandEvaluator.score(0, k.get(0), k.get(1), k.get(2), k.get(3), k.get(4));
+    }
+
+    private static int hash(long histogram, int cards) {
+        int sum = 0;
+        for (int pos = 0; pos < RANKS && cards > 0; ++pos) {
+            int d = (int) (histogram >>> rankShift(14 - pos)) & 7;
+            sum += HASH_OFFSET[(pos * 5 + d) * (MAX_CARDS + 1) + cards];
+            cards -= d;
+        }
+        return sum;
+    }
+
+    static int rankShift(int rank) {
+        return 3 * (rank - 2);
+    }
+
+    static int suitShift(int suit) {
+        return suit << 2;
+    }
+
+    static int evaluate(long cards, long rankHistogram, int suitHistogram, int count) {
+        int flush = (suitHistogram + 0x3333) & 0x8888;
+        if (flush != 0) {
+            int suit = Integer.numberOfTrailingZeros(flush) >>> 2;
+            return FLUSH[(int) (cards >>> (suit << 4)) >>> 2 & 0x1FFF];
+        }
+        return NON_FLUSH[count][hash(rankHistogram, count)];
+    }
+
+    public static int evaluate(long cards) {
+        long rankHistogram = 0;
+        int suitHistogram = 0;
+        for (long m = cards; m != 0; m &= m - 1) {
+            int code = Long.numberOfTrailingZeros(m);
+            rankHistogram += 1L << rankShift(code & 15);
+            suitHistogram += 1 << suitShift(code >>> 4);
+        }
+        return evaluate(cards, rankHistogram, suitHistogram, Long.bitCount(cards));
+    }
+
+    public static int evaluate(int[] codes, int from, int count) {
+        long cards = 0;
+        for (int i = from; i < from + count; ++i)
+            cards |= 1L << codes[i];
+        return evaluate(cards);
+    }
+
+    public static int evaluate(List<Card> cards) {
+        return evaluate(CardSet.of(cards));
+    }
+}
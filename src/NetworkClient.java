@@ -1,34 +1,27 @@
 import javafx.application.Platform;
 import java.io.*;
-import java.net.Socket;
 import java.util.function.Consumer;
 
 public class NetworkClient {
-    private Socket socket;
-    private ObjectOutputStream out;
-    private ObjectInputStream in;
-    private volatile boolean isRunning = false;
+    private static final int RESUME_ATTEMPTS = 5;
+    private static final long RESUME_BACKOFF_MILLIS = 1000;
 
-    private Consumer<GameStateDTO> onStateReceived;
+    private final BinaryClient client;
+    private volatile boolean isRunning = false;
 
     public NetworkClient(Consumer<GameStateDTO> onStateReceived) {
-        this.onStateReceived = onStateReceived;
+        // Важно: перекидываем обработку в FX Thread
+        this.client = new BinaryClient(state -> Platform.runLater(() -> onStateReceived.accept(state)));
     }
 
     public boolean connect(String host, int port, String playerName) {
         try {
-            socket = new Socket(host, port);
-            out = new ObjectOutputStream(socket.getOutputStream());
-            in = new ObjectInputStream(socket.getInputStream());
-
-            // Отправляем имя сразу после подключения (протокол сервера)
-            out.writeObject(playerName);
-            out.flush();
-
+            client.connect(host, port, playerName);
             startListening();
             return true;
         } catch (IOException e) {
             e.printStackTrace();
+            client.close();
             return false;
         }
     }
@@ -37,15 +30,15 @@ public class NetworkClient {
         isRunning = true;
         Thread listenerThread = new Thread(() -> {
             try {
-                while (isRunning && !Thread.currentThread().isInterrupted()) {
-                    Object obj = in.readObject();
-                    if (obj instanceof GameStateDTO state) {
-                        // Важно: перекидываем обработку в FX Thread
-                        Platform.runLater(() -> onStateReceived.accept(state));
+                while (isRunning) {
+                    try {
+                        client.readLoop();
+                    } catch (IOException e) {
+                        System.out.println("Connection lost: " + e.getMessage());
+                        if (!isRunning || !resume())
+                            return;
                     }
                 }
-            } catch (IOException | ClassNotFoundException e) {
-                System.out.println("Connection lost: " + e.getMessage());
             } finally {
                 close();
             }
@@ -54,26 +47,45 @@ public class NetworkClient {
         listenerThread.start();
     }
 
+    // the server holds the seat for a while, so a dropped connection is picked up again where it left off
+    private boolean resume() {
+        for (int attempt = 1; attempt <= RESUME_ATTEMPTS && isRunning; ++attempt) {
+            try {
+                Thread.sleep(RESUME_BACKOFF_MILLIS * attempt);
+                client.resume();
+                System.out.println("Session resumed");
+                return true;
+            } catch (IOException e) {
+                System.out.println("Resume attempt " + attempt + " failed: " + e.getMessage());
+            } catch (IllegalStateException e) {
+                System.out.println(e.getMessage());
+                return false;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return false;
+    }
+
     public void sendAction(PlayerAction action, int amount) {
-        if (out == null)
+        if (!isRunning)
             return;
         new Thread(() -> {
             try {
-                out.writeObject(new ActionMessage(action, amount));
-                out.flush();
+                client.sendAction(action, amount);
             } catch (IOException e) {
                 e.printStackTrace();
             }
         }).start();
     }
 
+    public String getPlayerName() {
+        return client.getPlayerName();
+    }
+
     public void close() {
         isRunning = false;
-        try {
-            if (socket != null)
-                socket.close();
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
+        client.close();
     }
 }
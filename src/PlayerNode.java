@@ -13,13 +13,13 @@ import javafx.scene.shape.Circle;
 import javafx.scene.text.Font;
 import javafx.scene.text.FontWeight;
 import javafx.util.Duration;
-import java.util.List;
 
 public class PlayerNode extends VBox {
     private final Circle avatarCircle;
     private final Label nameLabel;
     private final Label chipsLabel;
     private final Label betLabel;
+    private final Label equityLabel;
     private final Label dealerBadge;
     private final HBox cardsContainer;
     private final FillTransition allInAnimation;
@@ -58,13 +58,16 @@ public class PlayerNode extends VBox {
         chipsLabel.setTextFill(Color.LIGHTGREEN);
         betLabel = createLabel(12, false);
         betLabel.setTextFill(Color.YELLOW);
+        equityLabel = createLabel(12, true);
+        equityLabel.setTextFill(Color.LIGHTBLUE);
+        equityLabel.setVisible(false);
 
         cardsContainer = new HBox(5);
         cardsContainer.setAlignment(Pos.CENTER);
         cardsContainer.setMinHeight(40);
         cardsContainer.setTranslateY(-5);
 
-        this.getChildren().addAll(avatarContainer, nameLabel, chipsLabel, betLabel, cardsContainer);
+        this.getChildren().addAll(avatarContainer, nameLabel, chipsLabel, betLabel, equityLabel, cardsContainer);
 
         allInAnimation = new FillTransition(Duration.seconds(0.4), avatarCircle);
         allInAnimation.setFromValue(Color.BLACK);
@@ -88,6 +91,7 @@ public class PlayerNode extends VBox {
 
         if (shouldShow) {
             if (p.holeCards != null && !p.holeCards.isEmpty()) {
+                long bestFiveMask = (isShowdown && isWinner && p.handResult != null) ? CardSet.of(p.handResult.getBestFive()) : 0;
                 for (Card card : p.holeCards) {
                     ImageView cardView = new ImageView(ImageUtils.getCardImage(
                             card.getPower().getRank(),
@@ -103,14 +107,12 @@ public class PlayerNode extends VBox {
                         ft.play();
                     }
 
-                    if (isShowdown && p.handResult != null && p.handResult.getBestFive() != null && isWinner) {
-                        if (isCardInList(card, p.handResult.getBestFive())) {
-                            DropShadow goldGlow = new DropShadow();
-                            goldGlow.setColor(Color.GOLD);
-                            goldGlow.setRadius(20);
-                            goldGlow.setSpread(0.6);
-                            cardView.setEffect(goldGlow);
-                        }
+                    if (CardSet.contains(bestFiveMask, card)) {
+                        DropShadow goldGlow = new DropShadow();
+                        goldGlow.setColor(Color.GOLD);
+                        goldGlow.setRadius(20);
+                        goldGlow.setSpread(0.6);
+                        cardView.setEffect(goldGlow);
                     }
                     cardsContainer.getChildren().add(cardView);
                 }
@@ -125,12 +127,6 @@ public class PlayerNode extends VBox {
         }
     }
 
-    private boolean isCardInList(Card target, List<Card> list) {
-        if (list == null) return false;
-        return list.stream().anyMatch(c ->
-                c.getPower() == target.getPower() && c.getSuit() == target.getSuit());
-    }
-
     public void update(GameStateDTO.PlayerDTO p, boolean isActive, boolean isDealer, boolean isHandInProgress, boolean isShowdown, boolean isWinner) {
         nameLabel.setText(p.name);
         chipsLabel.setText("$" + p.chips);
@@ -152,6 +148,13 @@ public class PlayerNode extends VBox {
             betLabel.setVisible(false);
         }
 
+        if ((isHandInProgress || isShowdown) && p.allInEquity >= 0 && !p.isFolded) {
+            equityLabel.setText(String.format("Equity: %.1f%%", p.allInEquity));
+            equityLabel.setVisible(true);
+        } else {
+            equityLabel.setVisible(false);
+        }
+
         dealerBadge.setVisible(isDealer);
         allInTextLabel.setVisible(isHandInProgress && p.isAllIn);
 
@@ -0,0 +1,58 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+public class PrivateView {
+    // what only the recipient may see: their own hole cards and hand result
+    public static final PrivateView NONE = new PrivateView(-1, null, null);
+
+    private final int seat;
+    private final List<Card> holeCards;
+    private final HandResult handResult;
+
+    public PrivateView(int seat, List<Card> holeCards, HandResult handResult) {
+        this.seat = seat;
+        this.holeCards = holeCards;
+        this.handResult = handResult;
+    }
+
+    public int getSeat() {
+        return seat;
+    }
+
+    public GameStateDTO applyTo(GameStateDTO publicState) {
+        if (seat < 0 || seat >= publicState.players.size())
+            return publicState;
+        GameStateDTO state = new GameStateDTO();
+        state.communityCards = publicState.communityCards;
+        state.pot = publicState.pot;
+        state.currentMaxBet = publicState.currentMaxBet;
+        state.currentPlayerIndex = publicState.currentPlayerIndex;
+        state.isHandInProgress = publicState.isHandInProgress;
+        state.isShowdown = publicState.isShowdown;
+        state.dealerIndex = publicState.dealerIndex;
+        state.winners = publicState.winners;
+        state.players = new ArrayList<>(publicState.players);
+        GameStateDTO.PlayerDTO p = state.players.get(seat).copy();
+        p.holeCards = holeCards;
+        p.handResult = handResult;
+        state.players.set(seat, p);
+        return state;
+    }
+
+    public void encode(WireWriter w, long board) {
+        w.writeSignedVarInt(seat);
+        if (seat < 0)
+            return;
+        BinaryProtocol.writeCards(w, holeCards);
+        BinaryProtocol.writeResult(w, handResult, board | CardSet.of(holeCards));
+    }
+
+    public static PrivateView decode(WireReader r, long board) throws IOException {
+        int seat = r.readSignedVarInt();
+        if (seat < 0)
+            return NONE;
+        List<Card> holeCards = BinaryProtocol.readCards(r);
+        return new PrivateView(seat, holeCards, BinaryProtocol.readResult(r, board | CardSet.of(holeCards)));
+    }
+}
@@ -0,0 +1,55 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectOutputStream;
+import java.net.ProtocolException;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+public interface ProtocolChannel {
+    LoginMessage readLogin() throws IOException;
+
+    // null for messages the server does not handle
+    ActionMessage readAction() throws IOException;
+
+    void writeWelcome(ServerPlayer player, GameTable table) throws IOException;
+
+    void writeState(StateBroadcast broadcast, PrivateView view) throws IOException;
+
+    // the next state goes out in full instead of as a delta
+    void dropDeltaBase();
+
+    long getBytesWritten();
+
+    // true when the client answers heartbeats, so silence means the connection is gone
+    boolean sendsHeartbeats();
+
+    void writeHeartbeat() throws IOException;
+
+    // true when the client can come back under its session after the connection drops
+    boolean canResume();
+
+    // the delta frames a resumed client missed, ending at latest, or null to send latest as a snapshot
+    void writeResume(List<ByteBuffer> missed, StateBroadcast latest, PrivateView view) throws IOException;
+
+    static ProtocolChannel negotiate(Socket socket) throws IOException {
+        // legacy clients block until they read the serialization header, so it always goes first
+        CountingOutputStream counting = new CountingOutputStream(socket.getOutputStream());
+        ObjectOutputStream objectOut = new ObjectOutputStream(new BufferedOutputStream(counting));
+        objectOut.flush();
+
+        InputStream in = new BufferedInputStream(socket.getInputStream());
+        in.mark(3);
+        int b0 = in.read(), b1 = in.read();
+        if (BinaryProtocol.isMagic(b0, b1)) {
+            int version = in.read();
+            if (version < 1)
+                throw new ProtocolException("Unsupported binary protocol version " + version);
+            return new BinaryChannel(in, socket, Math.min(version, BinaryProtocol.VERSION));
+        }
+        in.reset();
+        return new LegacyChannel(objectOut, in, counting);
+    }
+}
@@ -0,0 +1,20 @@
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
+
+public class RandomSources {
+    private static final SplittableRandom SEEDS = new SplittableRandom();
+
+    public static RandomGenerator create(String spec) {
+        if (spec.equalsIgnoreCase("secure"))
+            return new BufferedSecureRandom();
+        if (spec.regionMatches(true, 0, "seed:", 0, 5))
+            return new SplittableRandom(Long.parseLong(spec.substring(5)));
+        if (spec.equalsIgnoreCase("splittable"))
+            return split();
+        throw new IllegalArgumentException("Unknown RNG: " + spec);
+    }
+
+    private static synchronized SplittableRandom split() {
+        return SEEDS.split();
+    }
+}
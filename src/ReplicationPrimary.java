@@ -0,0 +1,97 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.TimeUnit;
+
+// ships the hand journal to a standby: one snapshot when it connects, then every record the tables append,
+// read back from the segments on this thread so the tables never wait for the standby
+public class ReplicationPrimary implements Runnable {
+    // frame: type byte, int length, payload
+    static final int SNAPSHOT = 1;
+    static final int RECORDS = 2;
+    static final int HEARTBEAT = 3;
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private final TableRegistry tables;
+    private final HandJournal journal;
+    private final int port;
+    private final long batchMillis;
+    private final long heartbeatNanos;
+
+    public ReplicationPrimary(TableRegistry tables, int port, long batchMillis, long heartbeatMillis) {
+        if (tables.getJournal() == null)
+            throw new IllegalStateException("Replication needs poker.journalDir");
+        this.tables = tables;
+        this.journal = tables.getJournal();
+        this.port = port;
+        this.batchMillis = batchMillis;
+        this.heartbeatNanos = TimeUnit.MILLISECONDS.toNanos(heartbeatMillis);
+    }
+
+    // does nothing unless poker.replicationPort is set
+    public static void startFromConfig(TableRegistry tables) {
+        int port = ServerConfig.getInt("replicationPort", -1);
+        if (port < 0)
+            return;
+        ReplicationPrimary primary = new ReplicationPrimary(tables, port,
+                ServerConfig.getLong("replicationBatchMs", 10), ServerConfig.getLong("heartbeatMs", 100));
+        Thread thread = new Thread(primary, "replication");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void run() {
+        try (ServerSocket server = new ServerSocket(port)) {
+            System.out.println("Replication listening on port " + port);
+            while (!Thread.currentThread().isInterrupted()) {
+                try (Socket standby = server.accept()) {
+                    standby.setTcpNoDelay(true);
+                    System.out.println("Standby connected from " + standby.getRemoteSocketAddress());
+                    stream(standby);
+                } catch (IOException e) {
+                    System.err.println("Standby lost: " + e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Replication error: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void stream(Socket standby) throws IOException, InterruptedException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(standby.getOutputStream(), 1 << 16));
+        byte[] snapshot = tables.capture();
+        long shipped = new WireReader(snapshot).readVarLong();
+        send(out, SNAPSHOT, snapshot);
+        out.flush();
+        long lastSend = System.nanoTime();
+        while (true) {
+            Thread.sleep(batchMillis);
+            long position = journal.getPosition();
+            long now = System.nanoTime();
+            if (position != shipped) {
+                // whatever piled up since the last batch goes out in one flush
+                for (byte[] chunk : HandJournal.readRange(journal.getDir(), shipped, position))
+                    send(out, RECORDS, chunk);
+                shipped = position;
+            } else if (now - lastSend >= heartbeatNanos) {
+                send(out, HEARTBEAT, EMPTY);
+            } else {
+                continue;
+            }
+            out.flush();
+            lastSend = now;
+        }
+    }
+
+    private static void send(DataOutputStream out, int type, byte[] payload) throws IOException {
+        out.writeByte(type);
+        out.writeInt(payload.length);
+        out.write(payload);
+    }
+}
@@ -0,0 +1,134 @@
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+
+// keeps shadow tables in step with a primary's journal and takes them over once the primary goes quiet
+public class ReplicationStandby {
+    private final InetSocketAddress primary;
+    private final int failoverMillis;
+    // the shadows are built on the pool they will run on after a takeover
+    private final ExecutorService pool = TableRegistry.newPool();
+    private final Map<String, GameTable> shadows = new LinkedHashMap<>();
+    private final Map<Integer, String> keys = new HashMap<>();
+    private final Map<String, List<HandJournal.Record>> pending = new HashMap<>();
+    private boolean synced;
+    private long applied;
+
+    public ReplicationStandby(InetSocketAddress primary, int failoverMillis) {
+        this.primary = primary;
+        this.failoverMillis = failoverMillis;
+    }
+
+    // poker.standbyOf=host:port names the primary's replication port
+    public static ReplicationStandby fromConfig(String primary) {
+        int colon = primary.lastIndexOf(':');
+        return new ReplicationStandby(new InetSocketAddress(primary.substring(0, colon),
+                Integer.parseInt(primary.substring(colon + 1))), ServerConfig.getInt("failoverMs", 1000));
+    }
+
+    // follows the primary until its stream stops, then hands the tables over to serve from this process
+    public TableRegistry awaitTakeover() throws InterruptedException {
+        while (true) {
+            try (Socket socket = new Socket()) {
+                socket.connect(primary, failoverMillis);
+                socket.setSoTimeout(failoverMillis);
+                System.out.println("Following primary " + primary);
+                follow(new DataInputStream(new BufferedInputStream(socket.getInputStream(), 1 << 16)));
+            } catch (IOException e) {
+                // a standby that never saw the primary's tables has nothing to take over
+                if (synced) {
+                    System.out.println("Primary lost (" + e.getMessage() + "), taking over");
+                    return takeOver();
+                }
+                System.out.println("Waiting for primary " + primary + ": " + e.getMessage());
+                Thread.sleep(failoverMillis);
+            }
+        }
+    }
+
+    private void follow(DataInputStream in) throws IOException {
+        while (true) {
+            int type = in.readByte();
+            byte[] payload = new byte[in.readInt()];
+            in.readFully(payload);
+            switch (type) {
+                case ReplicationPrimary.SNAPSHOT -> load(payload);
+                case ReplicationPrimary.RECORDS -> apply(payload);
+                case ReplicationPrimary.HEARTBEAT -> {
+                }
+                default -> throw new IOException("Unknown replication frame " + type);
+            }
+        }
+    }
+
+    private void load(byte[] snapshot) throws IOException {
+        shadows.clear();
+        keys.clear();
+        pending.clear();
+        SnapshotStore.load(new WireReader(snapshot), this::newShadow, shadows, keys);
+        synced = true;
+        System.out.println("Synced " + shadows.size() + " tables from primary");
+    }
+
+    private void apply(byte[] records) throws IOException {
+        HandJournal.parse(new WireReader(records), keys, rec -> {
+            // same rules as recovery: seq 0 is a new table under a reused id
+            if (rec.type == HandJournal.TABLE) {
+                if (rec.seq == 0) {
+                    shadows.remove(rec.table);
+                    pending.put(rec.table, new ArrayList<>());
+                }
+                return;
+            }
+            if (rec.table != null)
+                pending.computeIfAbsent(rec.table, id -> new ArrayList<>()).add(rec);
+        });
+        pending.forEach((id, tableRecords) -> {
+            int complete = completeUnits(tableRecords);
+            if (complete > 0)
+                replay(id, tableRecords.subList(0, complete));
+        });
+        pending.values().removeIf(List::isEmpty);
+        shadows.values().removeIf(table -> table.getSeatedCount() == 0);
+    }
+
+    // a hand start or action is followed by the cards and payouts it produced, which may still be in the next batch
+    private static int completeUnits(List<HandJournal.Record> records) {
+        for (int i = records.size() - 1; i >= 0; --i) {
+            int type = records.get(i).type;
+            if (type == HandJournal.HAND || type == HandJournal.ACTION)
+                return i;
+            if (type == HandJournal.JOIN || type == HandJournal.LEAVE)
+                return i + 1;
+        }
+        return 0;
+    }
+
+    private void replay(String id, List<HandJournal.Record> records) {
+        shadows.computeIfAbsent(id, this::newShadow).replay(new ArrayList<>(records));
+        applied += records.size();
+        records.clear();
+    }
+
+    private TableRegistry takeOver() {
+        long start = System.nanoTime();
+        // nothing more is coming, so the last unit of every table is as complete as it will get
+        new ArrayList<>(pending.keySet()).forEach(id -> replay(id, pending.get(id)));
+        shadows.values().removeIf(table -> table.getSeatedCount() == 0);
+        System.out.printf("Took over %d tables after %d replicated records in %.1f ms%n",
+                shadows.size(), applied, (System.nanoTime() - start) / 1e6);
+        return new TableRegistry(pool, new ArrayList<>(shadows.values())).start();
+    }
+
+    private GameTable newShadow(String id) {
+        return new GameTable(id, ServerConfig.getInt("tableSeats", 9), RandomSources.create(ServerConfig.get("rng", "splittable")), pool);
+    }
+}
@@ -0,0 +1,51 @@
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class SerialExecutor implements Executor {
+    // a mailbox: tasks run one at a time in submission order on a shared pool
+    private static final int BATCH = 64;
+
+    private final Executor pool;
+    private final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    public SerialExecutor(Executor pool) {
+        this.pool = pool;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        tasks.add(task);
+        schedule();
+    }
+
+    private void schedule() {
+        if (scheduled.compareAndSet(false, true))
+            pool.execute(this::drain);
+    }
+
+    private void drain() {
+        try {
+            for (int i = 0; i < BATCH; ++i) {
+                Runnable task = tasks.poll();
+                if (task == null)
+                    break;
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    System.err.println("Task error: " + e.getMessage());
+                    e.printStackTrace();
+                }
+            }
+        } finally {
+            scheduled.set(false);
+            if (!tasks.isEmpty())
+                schedule();
+        }
+    }
+
+    public int getPendingCount() {
+        return tasks.size();
+    }
+}
@@ -0,0 +1,233 @@
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+public class ServerMetrics implements ServerMetricsMXBean {
+    public static final ServerMetrics INSTANCE = new ServerMetrics();
+
+    // switching off leaves a single branch on each hot path
+    private static final boolean ENABLED = ServerConfig.getBoolean("metrics", true);
+    private static final double[] QUANTILES = {50, 90, 99, 99.9};
+    private static final String[] QUANTILE_LABELS = {"0.5", "0.9", "0.99", "0.999"};
+
+    final LatencyHistogram actionWait = new LatencyHistogram();
+    final LatencyHistogram action = new LatencyHistogram();
+    final LatencyHistogram broadcast = new LatencyHistogram();
+    final LatencyHistogram createDTO = new LatencyHistogram();
+    final LatencyHistogram sendState = new LatencyHistogram();
+    final LatencyHistogram outboxLockWait = new LatencyHistogram();
+    final LatencyHistogram write = new LatencyHistogram();
+    final LatencyHistogram showdown = new LatencyHistogram();
+
+    final LongAdder actions = new LongAdder();
+    final LongAdder broadcasts = new LongAdder();
+    final LongAdder handsCompleted = new LongAdder();
+    final LongAdder statesDropped = new LongAdder();
+    final LongAdder actionTimeouts = new LongAdder();
+    final LongAdder idleDisconnects = new LongAdder();
+    final LongAdder sessionsResumed = new LongAdder();
+
+    private final Set<ClientHandler> clients = ConcurrentHashMap.newKeySet();
+    private final LongAdder bytesOfClosedClients = new LongAdder();
+    private volatile TableRegistry tables;
+
+    private ServerMetrics() {
+    }
+
+    static long start() {
+        return ENABLED ? System.nanoTime() : 0;
+    }
+
+    static void stop(LatencyHistogram histogram, long start) {
+        if (start != 0)
+            histogram.record(System.nanoTime() - start);
+    }
+
+    void clientConnected(ClientHandler client) {
+        clients.add(client);
+    }
+
+    void clientDisconnected(ClientHandler client) {
+        if (clients.remove(client))
+            bytesOfClosedClients.add(client.getBytesWritten());
+    }
+
+    void bind(TableRegistry tables) {
+        this.tables = tables;
+    }
+
+    @Override
+    public int getConnectedClients() {
+        return clients.size();
+    }
+
+    @Override
+    public int getTables() {
+        TableRegistry registry = tables;
+        return registry == null ? 0 : registry.getTables().size();
+    }
+
+    @Override
+    public long getPendingTableTasks() {
+        TableRegistry registry = tables;
+        long pending = 0;
+        if (registry != null) {
+            for (GameTable table : registry.getTables())
+                pending += table.getPendingCount();
+        }
+        return pending;
+    }
+
+    @Override
+    public long getActions() {
+        return actions.sum();
+    }
+
+    @Override
+    public long getBroadcasts() {
+        return broadcasts.sum();
+    }
+
+    @Override
+    public long getHandsCompleted() {
+        return handsCompleted.sum();
+    }
+
+    @Override
+    public long getBytesWritten() {
+        long bytes = bytesOfClosedClients.sum();
+        for (ClientHandler client : clients)
+            bytes += client.getBytesWritten();
+        return bytes;
+    }
+
+    @Override
+    public long getStatesDropped() {
+        return statesDropped.sum();
+    }
+
+    @Override
+    public long getActionTimeouts() {
+        return actionTimeouts.sum();
+    }
+
+    @Override
+    public long getIdleDisconnects() {
+        return idleDisconnects.sum();
+    }
+
+    @Override
+    public long getSessionsResumed() {
+        return sessionsResumed.sum();
+    }
+
+    @Override
+    public int getPendingTimers() {
+        return TimerWheel.SERVER.getPending();
+    }
+
+    private Map<String, LatencyHistogram> timers() {
+        Map<String, LatencyHistogram> timers = new LinkedHashMap<>();
+        timers.put("action_wait", actionWait);
+        timers.put("action", action);
+        timers.put("broadcast", broadcast);
+        timers.put("create_dto", createDTO);
+        timers.put("send_state", sendState);
+        timers.put("outbox_lock_wait", outboxLockWait);
+        timers.put("write", write);
+        timers.put("showdown", showdown);
+        return timers;
+    }
+
+    @Override
+    public Map<String, Double> getLatencies() {
+        Map<String, Double> latencies = new LinkedHashMap<>();
+        timers().forEach((name, h) -> {
+            latencies.put(name + ".count", (double) h.getCount());
+            latencies.put(name + ".mean", h.getMean() / 1e3);
+            latencies.put(name + ".p50", h.getPercentile(50) / 1e3);
+            latencies.put(name + ".p99", h.getPercentile(99) / 1e3);
+            latencies.put(name + ".p999", h.getPercentile(99.9) / 1e3);
+            latencies.put(name + ".max", h.getMax() / 1e3);
+        });
+        return latencies;
+    }
+
+    public String scrape() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("poker_connected_clients ").append(getConnectedClients()).append('\n');
+        sb.append("poker_tables ").append(getTables()).append('\n');
+        sb.append("poker_pending_table_tasks ").append(getPendingTableTasks()).append('\n');
+        sb.append("poker_actions_total ").append(getActions()).append('\n');
+        sb.append("poker_broadcasts_total ").append(getBroadcasts()).append('\n');
+        sb.append("poker_hands_completed_total ").append(getHandsCompleted()).append('\n');
+        sb.append("poker_bytes_written_total ").append(getBytesWritten()).append('\n');
+        sb.append("poker_states_dropped_total ").append(getStatesDropped()).append('\n');
+        sb.append("poker_action_timeouts_total ").append(getActionTimeouts()).append('\n');
+        sb.append("poker_idle_disconnects_total ").append(getIdleDisconnects()).append('\n');
+        sb.append("poker_sessions_resumed_total ").append(getSessionsResumed()).append('\n');
+        sb.append("poker_pending_timers ").append(getPendingTimers()).append('\n');
+        timers().forEach((name, h) -> {
+            String metric = "poker_" + name + "_us";
+            for (int i = 0; i < QUANTILES.length; ++i)
+                sb.append(String.format("%s{quantile=\"%s\"} %.1f%n", metric, QUANTILE_LABELS[i], h.getPercentile(QUANTILES[i]) / 1e3));
+            sb.append(String.format("%s_max %.1f%n", metric, h.getMax() / 1e3));
+            sb.append(String.format("%s_mean %.1f%n", metric, h.getMean() / 1e3));
+            sb.append(metric).append("_count ").append(h.getCount()).append('\n');
+        });
+        return sb.toString();
+    }
+
+    public String scrapeClients() {
+        StringBuilder sb = new StringBuilder();
+        for (ClientHandler client : clients) {
+            ServerPlayer player = client.getPlayer();
+            String name = player != null ? player.getName().replace("\"", "'") : "unknown";
+            sb.append("poker_client_bytes_written{player=\"").append(name).append("\"} ")
+                    .append(client.getBytesWritten()).append('\n');
+        }
+        return sb.toString();
+    }
+
+    // JMX always, plain text over HTTP on loopback when poker.metricsPort is set
+    public void export(TableRegistry tables) {
+        bind(tables);
+        try {
+            ObjectName name = new ObjectName("poker:type=ServerMetrics");
+            if (!ManagementFactory.getPlatformMBeanServer().isRegistered(name))
+                ManagementFactory.getPlatformMBeanServer().registerMBean(this, name);
+        } catch (JMException e) {
+            System.err.println("Metrics JMX registration failed: " + e.getMessage());
+        }
+        int port = ServerConfig.getInt("metricsPort", -1);
+        if (port < 0)
+            return;
+        try {
+            HttpServer http = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+            http.createContext("/metrics", exchange -> {
+                boolean perClient = exchange.getRequestURI().getPath().equals("/metrics/clients");
+                byte[] body = (perClient ? scrapeClients() : scrape()).getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            });
+            http.start();
+            System.out.println("Metrics on http://localhost:" + port + "/metrics");
+        } catch (IOException e) {
+            System.err.println("Metrics endpoint failed: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,30 @@
+import java.util.Map;
+
+public interface ServerMetricsMXBean {
+    int getConnectedClients();
+
+    int getTables();
+
+    long getPendingTableTasks();
+
+    long getActions();
+
+    long getBroadcasts();
+
+    long getHandsCompleted();
+
+    long getBytesWritten();
+
+    long getStatesDropped();
+
+    long getActionTimeouts();
+
+    long getIdleDisconnects();
+
+    long getSessionsResumed();
+
+    int getPendingTimers();
+
+    // "<timer>.<statistic>" in microseconds, e.g. "broadcast.p99"
+    Map<String, Double> getLatencies();
+}
@@ -1,20 +1,29 @@
+import java.io.IOException;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
 
 public class ServerPlayer implements Serializable {
+    private static final long TIME_BANK_MILLIS = ServerConfig.getLong("timeBankMs", 30_000);
+
     private final String sessionID;
     private final String name;
     private int chips;
     private boolean online = true;
     private boolean waitingForNextHand;
+    // extra thinking time once the action clock runs out, spent across the whole session
+    private long timeBank = TIME_BANK_MILLIS;
 
     private boolean allIn;
     private boolean folded;
     private int currentBet = 0;
     private int lastBetAmount = 0;
     private HandResult currentResult;
+    private double allInEquity = -1;
     private final List<Card> cards = new ArrayList<>();
+    private long cardMask;
+    // a per-hand cache, rebuilt from the cards when a snapshot is restored
+    private final transient HandTracker handTracker = new HandTracker();
 
     public ServerPlayer(String id, String name, int startChips) {
         this.sessionID = id;
@@ -26,13 +35,54 @@ public class ServerPlayer implements Serializable {
         currentBet = 0;
         lastBetAmount = 0;
         currentResult = null;
+        allInEquity = -1;
         cards.clear();
+        cardMask = 0;
+        handTracker.reset();
         allIn = false;
         folded = false;
     }
 
+    void writeSnapshot(WireWriter w) {
+        w.writeString(sessionID);
+        w.writeString(name);
+        w.writeVarInt(chips);
+        w.writeVarInt(currentBet);
+        w.writeVarInt(lastBetAmount);
+        w.writeByte((online ? 1 : 0) | (waitingForNextHand ? 2 : 0) | (allIn ? 4 : 0) | (folded ? 8 : 0));
+        BinaryProtocol.writeCards(w, cards);
+        w.writeVarInt(BinaryProtocol.encodeEquity(allInEquity));
+        BinaryProtocol.writeResult(w, currentResult, 0);
+        w.writeVarLong(timeBank);
+    }
+
+    // board cards are added to the hand tracker by the table
+    static ServerPlayer readSnapshot(WireReader r) throws IOException {
+        ServerPlayer p = new ServerPlayer(r.readString(), r.readString(), 0);
+        p.chips = r.readVarInt();
+        p.currentBet = r.readVarInt();
+        p.lastBetAmount = r.readVarInt();
+        int flags = r.readByte();
+        p.online = (flags & 1) != 0;
+        p.waitingForNextHand = (flags & 2) != 0;
+        p.allIn = (flags & 4) != 0;
+        p.folded = (flags & 8) != 0;
+        for (Card card : BinaryProtocol.readCards(r))
+            p.addCard(card);
+        p.allInEquity = BinaryProtocol.decodeEquity(r.readVarInt());
+        p.currentResult = BinaryProtocol.readResult(r, 0);
+        p.timeBank = r.readVarLong();
+        return p;
+    }
+
     public void addCard(Card card) {
         cards.add(card);
+        cardMask |= card.getMask();
+        handTracker.add(card);
+    }
+
+    public void addBoardCard(Card card) {
+        handTracker.add(card);
     }
 
     public void makeBet(int amount) {
@@ -82,6 +132,22 @@ public class ServerPlayer implements Serializable {
         return cards;
     }
 
+    public long getCardMask() {
+        return cardMask;
+    }
+
+    public double getAllInEquity() {
+        return allInEquity;
+    }
+
+    public void setAllInEquity(double equity) {
+        allInEquity = equity;
+    }
+
+    public HandTracker getHandTracker() {
+        return handTracker;
+    }
+
     public HandResult getCurrentResult() {
         return currentResult;
     }
@@ -110,6 +176,14 @@ public class ServerPlayer implements Serializable {
         this.online = online;
     }
 
+    public long getTimeBank() {
+        return timeBank;
+    }
+
+    public void useTimeBank(long millis) {
+        timeBank = Math.max(0, timeBank - millis);
+    }
+
     public boolean isWaitingForNextHand() {
         return waitingForNextHand;
     }
@@ -0,0 +1,99 @@
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+// every seated player by session id, including those whose connection dropped and who may still come back
+public class SessionDirectory {
+    private final ConcurrentHashMap<String, Session> sessions = new ConcurrentHashMap<>();
+    private final long graceMillis;
+    private final Consumer<Session> onExpire;
+
+    public static class Session {
+        public final ServerPlayer player;
+        public final GameTable table;
+        // guarded by this: the connection serving the session, null while it waits to be resumed
+        private ClientHandler handler;
+        private TimerWheel.Timeout expiry;
+        private boolean closed;
+
+        Session(ServerPlayer player, GameTable table, ClientHandler handler) {
+            this.player = player;
+            this.table = table;
+            this.handler = handler;
+        }
+    }
+
+    public SessionDirectory(long graceMillis, Consumer<Session> onExpire) {
+        this.graceMillis = graceMillis;
+        this.onExpire = onExpire;
+    }
+
+    public Session open(ServerPlayer player, GameTable table, ClientHandler handler) {
+        Session session = new Session(player, table, handler);
+        sessions.put(player.getSessionID(), session);
+        return session;
+    }
+
+    // a seat that came back without its connection, after recovery or a takeover
+    public void hold(ServerPlayer player, GameTable table) {
+        Session session = open(player, table, null);
+        synchronized (session) {
+            session.expiry = scheduleExpiry(session);
+        }
+    }
+
+    public Session get(String sessionId) {
+        return sessions.get(sessionId);
+    }
+
+    public int size() {
+        return sessions.size();
+    }
+
+    // false when the session is closed or its grace period has just run out
+    public boolean attach(Session session, ClientHandler handler) {
+        synchronized (session) {
+            if (session.closed || (session.expiry != null && !session.expiry.cancel()))
+                return false;
+            session.expiry = null;
+            session.handler = handler;
+            return true;
+        }
+    }
+
+    // keeps the seat for the grace period, false when another connection already took the session over
+    public boolean detach(Session session, ClientHandler handler) {
+        synchronized (session) {
+            if (session.closed || session.handler != handler)
+                return false;
+            session.handler = null;
+            session.expiry = scheduleExpiry(session);
+            return true;
+        }
+    }
+
+    // false when another connection already took the session over
+    public boolean close(Session session, ClientHandler handler) {
+        synchronized (session) {
+            if (session.closed || session.handler != handler)
+                return false;
+            session.closed = true;
+        }
+        sessions.remove(session.player.getSessionID(), session);
+        return true;
+    }
+
+    private TimerWheel.Timeout scheduleExpiry(Session session) {
+        return TimerWheel.SERVER.schedule(graceMillis, () -> expire(session));
+    }
+
+    // runs on the timer wheel, the seat itself is given up on the table's mailbox
+    private void expire(Session session) {
+        synchronized (session) {
+            if (session.closed || session.handler != null)
+                return;
+            session.closed = true;
+        }
+        sessions.remove(session.player.getSessionID(), session);
+        onExpire.accept(session);
+    }
+}
@@ -0,0 +1,134 @@
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+
+public class ShardGateway {
+    private static final int BUFFER_SIZE = 16 * 1024;
+    // magic, version and a frame length of up to four varint bytes
+    private static final int HEADER_SIZE = 7;
+
+    private final ShardRouter router;
+
+    public ShardGateway(ShardRouter router) {
+        this.router = router;
+    }
+
+    public void start(int port) throws IOException {
+        try (ServerSocketChannel serverChannel = ServerSocketChannel.open()) {
+            serverChannel.bind(new InetSocketAddress(port));
+            System.out.println("Gateway started on port " + port + ", nodes " + router.getNodes());
+            while (!Thread.currentThread().isInterrupted()) {
+                SocketChannel client = serverChannel.accept();
+                client.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                Thread.ofVirtual().name("gateway-client").start(() -> handle(client));
+            }
+        }
+    }
+
+    private void handle(SocketChannel client) {
+        SocketChannel node = null;
+        try {
+            // only the login is parsed, everything after it is relayed untouched
+            ByteBuffer prefix = readPrefix(client);
+            ShardRouter.Node target = router.route(tableIdOf(prefix));
+            node = SocketChannel.open(target.address);
+            node.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            prefix.flip();
+            while (prefix.hasRemaining())
+                node.write(prefix);
+
+            SocketChannel upstream = node;
+            Thread back = Thread.ofVirtual().name("gateway-relay").start(() -> relay(upstream, client));
+            relay(client, node);
+            back.join();
+        } catch (IOException e) {
+            System.err.println("Gateway connection failed: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            close(client);
+            close(node);
+        }
+    }
+
+    // the header and login frame of a binary client, or the first two bytes of a legacy one
+    private static ByteBuffer readPrefix(SocketChannel client) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        int b0 = readByte(client, header), b1 = readByte(client, header);
+        if (!BinaryProtocol.isMagic(b0, b1))
+            return header;
+        readByte(client, header);
+        int length = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = readByte(client, header);
+            length |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0)
+                break;
+            if (shift >= 21)
+                throw new IOException("Malformed frame length");
+        }
+        if (length <= 0 || length > BinaryProtocol.MAX_FRAME)
+            throw new IOException("Bad frame length " + length);
+        // a login is a few dozen bytes, so only what the frame declares is allocated
+        ByteBuffer prefix = ByteBuffer.allocate(header.position() + length);
+        prefix.put(header.flip());
+        while (prefix.hasRemaining()) {
+            if (client.read(prefix) < 0)
+                throw new EOFException();
+        }
+        return prefix;
+    }
+
+    // null for legacy clients and binary logins without a table
+    private static String tableIdOf(ByteBuffer prefix) throws IOException {
+        if (!BinaryProtocol.isMagic(prefix.get(0) & 0xFF, prefix.get(1) & 0xFF))
+            return null;
+        WireReader r = new WireReader(prefix.array(), 3, prefix.position() - 3);
+        r.readVarInt();
+        if (r.readByte() != BinaryProtocol.LOGIN)
+            return null;
+        return BinaryProtocol.decodeLogin(r).tableId;
+    }
+
+    private static int readByte(SocketChannel channel, ByteBuffer prefix) throws IOException {
+        int position = prefix.position();
+        prefix.limit(position + 1);
+        if (channel.read(prefix) < 0)
+            throw new EOFException();
+        prefix.limit(prefix.capacity());
+        return prefix.get(position) & 0xFF;
+    }
+
+    // direct buffers keep the payload out of the Java heap on its way between the sockets
+    private static void relay(SocketChannel from, SocketChannel to) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        try {
+            while (from.read(buffer) >= 0) {
+                buffer.flip();
+                while (buffer.hasRemaining())
+                    to.write(buffer);
+                buffer.clear();
+            }
+            to.shutdownOutput();
+        } catch (IOException e) {
+            close(from);
+            close(to);
+        }
+    }
+
+    private static void close(SocketChannel channel) {
+        try {
+            if (channel != null)
+                channel.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        new ShardGateway(ShardRouter.fromConfig()).start(ServerConfig.getInt("port", 7000));
+    }
+}
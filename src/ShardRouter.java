@@ -0,0 +1,79 @@
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ShardRouter {
+    public static class Node {
+        public final String id;
+        public final InetSocketAddress address;
+
+        public Node(String id, InetSocketAddress address) {
+            this.id = id;
+            this.address = address;
+        }
+
+        @Override
+        public String toString() {
+            return id + "=" + address.getHostString() + ":" + address.getPort();
+        }
+    }
+
+    private final List<Node> nodes;
+    private final AtomicInteger nextLobbyNode = new AtomicInteger();
+
+    public ShardRouter(List<Node> nodes) {
+        if (nodes.isEmpty())
+            throw new IllegalArgumentException("No nodes to route to");
+        this.nodes = List.copyOf(nodes);
+    }
+
+    // "n1=localhost:7001,n2=localhost:7002"
+    public static ShardRouter parse(String spec) {
+        List<Node> nodes = new ArrayList<>();
+        for (String entry : spec.split(",")) {
+            String[] idAndAddress = entry.trim().split("=");
+            String[] hostAndPort = idAndAddress[1].split(":");
+            nodes.add(new Node(idAndAddress[0], new InetSocketAddress(hostAndPort[0], Integer.parseInt(hostAndPort[1]))));
+        }
+        return new ShardRouter(nodes);
+    }
+
+    public static ShardRouter fromConfig() {
+        return parse(ServerConfig.get("nodes", "n1=localhost:7001"));
+    }
+
+    public Node route(String tableId) {
+        // lobby joins are spread evenly, the node then opens tables named after itself
+        if (tableId == null)
+            return nodes.get(Math.floorMod(nextLobbyNode.getAndIncrement(), nodes.size()));
+        for (Node node : nodes) {
+            if (tableId.startsWith(node.id + "-"))
+                return node;
+        }
+        // rendezvous hashing: adding a node only moves the tables that now score highest on it
+        Node best = null;
+        long bestScore = 0;
+        for (Node node : nodes) {
+            long score = mix(tableId.hashCode() * 0x9E3779B97F4A7C15L ^ node.id.hashCode());
+            if (best == null || Long.compareUnsigned(score, bestScore) > 0) {
+                best = node;
+                bestScore = score;
+            }
+        }
+        return best;
+    }
+
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    public List<Node> getNodes() {
+        return nodes;
+    }
+}
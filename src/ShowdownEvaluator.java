@@ -0,0 +1,79 @@
+public class ShowdownEvaluator {
+    private long board;
+    private long boardRanks;
+    private int boardSuits;
+    private int boardCount;
+
+    private int[] scores;
+    private int[] winners;
+    private int winnerCount;
+    private int bestScore;
+
+    public ShowdownEvaluator(int capacity) {
+        scores = new int[capacity];
+        winners = new int[capacity];
+    }
+
+    public void setBoard(long board) {
+        this.board = board;
+        boardRanks = 0;
+        boardSuits = 0;
+        for (long m = board; m != 0; m &= m - 1) {
+            int code = Long.numberOfTrailingZeros(m);
+            boardRanks += 1L << LookupHandEvaluator.rankShift(code & 15);
+            boardSuits += 1 << LookupHandEvaluator.suitShift(code >>> 4);
+        }
+        boardCount = Long.bitCount(board);
+    }
+
+    public int evaluate(long hole) {
+        long ranks = boardRanks;
+        int suits = boardSuits;
+        for (long m = hole; m != 0; m &= m - 1) {
+            int code = Long.numberOfTrailingZeros(m);
+            ranks += 1L << LookupHandEvaluator.rankShift(code & 15);
+            suits += 1 << LookupHandEvaluator.suitShift(code >>> 4);
+        }
+        return LookupHandEvaluator.evaluate(board | hole, ranks, suits, boardCount + Long.bitCount(hole));
+    }
+
+    public int evaluateAll(long[] holes, int count) {
+        if (count > scores.length) {
+            scores = new int[count];
+            winners = new int[count];
+        }
+        bestScore = -1;
+        winnerCount = 0;
+        for (int i = 0; i < count; ++i) {
+            int score = evaluate(holes[i]);
+            scores[i] = score;
+            if (score > bestScore) {
+                bestScore = score;
+                winnerCount = 0;
+            }
+            if (score == bestScore)
+                winners[winnerCount++] = i;
+        }
+        return bestScore;
+    }
+
+    public int getScore(int index) {
+        return scores[index];
+    }
+
+    public int[] getScores() {
+        return scores;
+    }
+
+    public int getBestScore() {
+        return bestScore;
+    }
+
+    public int getWinnerCount() {
+        return winnerCount;
+    }
+
+    public int getWinner(int n) {
+        return winners[n];
+    }
+}
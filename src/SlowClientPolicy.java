@@ -0,0 +1,12 @@
+public enum SlowClientPolicy {
+    // queued states are always coalesced to the latest, this decides what happens once a client has skipped
+    // outboxCapacity states in a row: DROP queues nothing more for it until its writer gets through the write it is
+    // stuck on, RESYNC sends its next state as a full snapshot, DISCONNECT closes the connection
+    DROP,
+    DISCONNECT,
+    RESYNC;
+
+    public static SlowClientPolicy fromConfig() {
+        return valueOf(ServerConfig.get("slowClientPolicy", "resync").toUpperCase());
+    }
+}
@@ -0,0 +1,137 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+public class SnapshotStore {
+    private static final int KEEP = 2;
+
+    private final Path dir;
+    private final HandJournal journal;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "table-snapshots");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public SnapshotStore(HandJournal journal) {
+        this.dir = journal.getDir();
+        this.journal = journal;
+    }
+
+    public void start(Supplier<Collection<GameTable>> tables, long periodSeconds) {
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                save(tables.get());
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Snapshot failed: " + e.getMessage());
+            }
+        }, periodSeconds, periodSeconds, TimeUnit.SECONDS);
+    }
+
+    public void save(Collection<GameTable> tables) throws IOException {
+        byte[] snapshot = capture(tables);
+        List<Path> existing = snapshots();
+        int number = existing.isEmpty() ? 1 : snapshotNumber(existing.getLast()) + 1;
+        Path tmp = dir.resolve("snapshot.tmp");
+        Files.write(tmp, snapshot);
+        Files.move(tmp, dir.resolve(String.format("snapshot-%06d.bin", number)), StandardCopyOption.ATOMIC_MOVE);
+        for (int i = 0; i <= existing.size() - KEEP; ++i)
+            Files.deleteIfExists(existing.get(i));
+    }
+
+    // each table copies itself on its own mailbox, so play goes on while the others are captured
+    public byte[] capture(Collection<GameTable> tables) {
+        // taken first: anything a table journals after its copy lands at or after this position
+        long position = journal.getPosition();
+        List<CompletableFuture<byte[]>> copies = new ArrayList<>();
+        for (GameTable table : tables)
+            copies.add(table.snapshot());
+
+        WireWriter w = new WireWriter(64 + copies.size() * 256);
+        w.writeVarLong(position);
+        w.writeVarInt(copies.size());
+        for (CompletableFuture<byte[]> copy : copies) {
+            byte[] bytes = copy.join();
+            w.writeVarInt(bytes.length);
+            w.writeBytes(bytes, 0, bytes.length);
+        }
+        return w.toByteArray();
+    }
+
+    // restores the tables of a captured snapshot and returns the journal position it was taken at
+    static long load(WireReader r, Function<String, GameTable> newTable, Map<String, GameTable> tables,
+                     Map<Integer, String> keys) throws IOException {
+        long position = r.readVarLong();
+        for (int i = r.readVarInt(); i > 0; --i) {
+            int length = r.readVarInt();
+            WireReader table = new WireReader(r.readBytes(length));
+            String id = table.readString();
+            keys.put(table.readVarInt(), id);
+            GameTable restored = newTable.apply(id);
+            restored.restore(table);
+            tables.put(id, restored);
+        }
+        return position;
+    }
+
+    // the latest snapshot plus everything journaled after it, up to where the current run started
+    public Collection<GameTable> recover(Function<String, GameTable> newTable, long journalEnd) throws IOException {
+        Map<String, GameTable> tables = new LinkedHashMap<>();
+        Map<Integer, String> keys = new HashMap<>();
+        long from = 0;
+        List<Path> existing = snapshots();
+        if (!existing.isEmpty())
+            from = load(new WireReader(Files.readAllBytes(existing.getLast())), newTable, tables, keys);
+
+        Map<String, List<HandJournal.Record>> records = new HashMap<>();
+        HandJournal.read(dir, from, journalEnd, keys, rec -> {
+            // a table registered with seq 0 is a new one that reused the id, whatever came before is gone
+            if (rec.type == HandJournal.TABLE) {
+                if (rec.seq == 0) {
+                    tables.remove(rec.table);
+                    records.put(rec.table, new ArrayList<>());
+                }
+                return;
+            }
+            // tables closed before the snapshot was taken are not worth bringing back
+            if (rec.table != null)
+                records.computeIfAbsent(rec.table, id -> new ArrayList<>()).add(rec);
+        });
+        records.forEach((id, tableRecords) -> tables.computeIfAbsent(id, newTable).replay(tableRecords));
+        tables.values().removeIf(table -> table.getSeatedCount() == 0);
+        return tables.values();
+    }
+
+    private static int snapshotNumber(Path path) {
+        String name = path.getFileName().toString();
+        return Integer.parseInt(name.substring("snapshot-".length(), name.length() - ".bin".length()));
+    }
+
+    private List<Path> snapshots() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            List<Path> snapshots = new ArrayList<>(files
+                    .filter(p -> p.getFileName().toString().matches("snapshot-\\d+\\.bin"))
+                    .toList());
+            snapshots.sort((x, y) -> Integer.compare(snapshotNumber(x), snapshotNumber(y)));
+            return snapshots;
+        }
+    }
+
+    public void shutdown() {
+        scheduler.shutdown();
+    }
+}
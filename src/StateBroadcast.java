@@ -0,0 +1,51 @@
+import java.nio.ByteBuffer;
+
+public class StateBroadcast {
+    // one table version as every recipient sees it, frames are encoded on first use and shared
+    private final long version;
+    private final GameStateDTO publicState;
+    private final long previousVersion;
+    private final GameStateDTO previousState;
+    private ByteBuffer snapshotFrame;
+    private ByteBuffer deltaFrame;
+
+    public StateBroadcast(long version, GameStateDTO publicState, StateBroadcast previous) {
+        this.version = version;
+        this.publicState = publicState;
+        this.previousVersion = previous != null ? previous.version : -1;
+        this.previousState = previous != null ? previous.publicState : null;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public long getPreviousVersion() {
+        return previousVersion;
+    }
+
+    public GameStateDTO getPublicState() {
+        return publicState;
+    }
+
+    public synchronized ByteBuffer snapshotFrame() {
+        if (snapshotFrame == null) {
+            WireWriter w = new WireWriter();
+            BinaryProtocol.encodeSnapshot(w, version, publicState);
+            snapshotFrame = ByteBuffer.wrap(w.toByteArray()).asReadOnlyBuffer();
+        }
+        return snapshotFrame.duplicate();
+    }
+
+    // null when there is no previous version to diff against
+    public synchronized ByteBuffer deltaFrame() {
+        if (previousState == null)
+            return null;
+        if (deltaFrame == null) {
+            WireWriter w = new WireWriter();
+            DeltaCodec.encode(w, previousVersion, version, previousState, publicState);
+            deltaFrame = ByteBuffer.wrap(w.toByteArray()).asReadOnlyBuffer();
+        }
+        return deltaFrame.duplicate();
+    }
+}
@@ -1,10 +1,14 @@
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.random.RandomGenerator;
 
 public class Table {
     private final List<ServerPlayer> players = new ArrayList<>();
-    private Deck deck;
+    private final Deck deck;
     private final List<Card> communityCards = new ArrayList<>();
+    private long communityMask;
 
     private int pot;
     private int currentMaxBet;
@@ -17,9 +21,51 @@ public class Table {
     private boolean isShowdown = false;
     private final List<String> winnersNames = new ArrayList<>();
 
+    private final ShowdownEvaluator showdownEvaluator = new ShowdownEvaluator(9);
+    private final List<ServerPlayer> contenders = new ArrayList<>();
+    private long[] contenderHoles = new long[9];
+
     private final int SMALL_BLIND = 5;
     private final int BIG_BLIND = 10;
 
+    // every deal, action and payout is appended here when the server keeps a journal
+    private HandJournal journal;
+    private int journalKey;
+    private long journalSeq;
+    private long handNumber;
+
+    // the run-out left by the last all-in, its equity is worked out by GameTable off the table's thread
+    private AllInSpot allInSpot;
+    // nobody is left to act: the hand waits with the board unfinished until runOut, so the equity goes out first
+    private boolean runOutPending;
+
+    public static final class AllInSpot {
+        public final long hand;
+        public final List<ServerPlayer> players;
+        public final long[] holes;
+        public final long board;
+
+        AllInSpot(long hand, List<ServerPlayer> players, long[] holes, long board) {
+            this.hand = hand;
+            this.players = players;
+            this.holes = holes;
+            this.board = board;
+        }
+    }
+
+    public Table() {
+        this(RandomSources.create("splittable"));
+    }
+
+    public Table(RandomGenerator random) {
+        this.deck = new Deck(random);
+    }
+
+    public void setJournal(HandJournal journal, int journalKey) {
+        this.journal = journal;
+        this.journalKey = journalKey;
+    }
+
     public synchronized void addPlayer(ServerPlayer player) {
         boolean noActivePlayers = players.stream().noneMatch(ServerPlayer::isOnline);
         if (noActivePlayers) {
@@ -29,12 +75,14 @@ public class Table {
             player.setWaitingForNextHand(true);
         }
         players.add(player);
+        if (journal != null)
+            journal.join(journalKey, ++journalSeq, handNumber, players.size() - 1, player.getChips(), player.getName(), player.getSessionID());
     }
 
     private void resetTableState() {
         pot = 0;
         currentMaxBet = 0;
-        communityCards.clear();
+        clearCommunityCards();
         winnersNames.clear();
         isShowdown = false;
         isHandInProgress = false;
@@ -44,6 +92,23 @@ public class Table {
         }
     }
 
+    private void clearCommunityCards() {
+        communityCards.clear();
+        communityMask = 0;
+    }
+
+    private void dealCommunityCard() {
+        Card card = deck.dealCard();
+        communityCards.add(card);
+        communityMask |= card.getMask();
+        if (journal != null)
+            journal.board(journalKey, ++journalSeq, handNumber, card);
+        for (ServerPlayer p : players) {
+            if (!p.isFolded() && !p.isWaitingForNextHand())
+                p.addBoardCard(card);
+        }
+    }
+
     private void moveToNextActivePlayer() {
         long canAct = players.stream()
                 .filter(p -> !p.isFolded() && !p.isAllIn() && !p.isWaitingForNextHand())
@@ -91,8 +156,8 @@ public class Table {
             return;
         }
 
-        deck = new Deck();
-        communityCards.clear();
+        deck.shuffle();
+        clearCommunityCards();
         winnersNames.clear();
         isShowdown = false;
         pot = 0;
@@ -115,17 +180,30 @@ public class Table {
             bbIndex = (bbIndex + 1) % players.size();
         }
 
+        handNumber++;
+        if (journal != null) {
+            journal.hand(journalKey, ++journalSeq, handNumber, dealerIndex);
+            for (int i = 0; i < players.size(); ++i) {
+                ServerPlayer p = players.get(i);
+                journal.seat(journalKey, ++journalSeq, handNumber, i, p.getChips(), p.isWaitingForNextHand(), p.getName());
+            }
+        }
+
         players.get(sbIndex).makeBet(SMALL_BLIND);
         players.get(bbIndex).makeBet(BIG_BLIND);
 
         currentMaxBet = BIG_BLIND;
         pot += players.get(sbIndex).getLastBetAmount() + players.get(bbIndex).getLastBetAmount();
 
-        for (ServerPlayer p : players) {
+        for (int i = 0; i < players.size(); ++i) {
+            ServerPlayer p = players.get(i);
             if (!p.isWaitingForNextHand() && p.isOnline()) {
-                p.getCards().clear();
-                p.addCard(deck.dealCard());
-                p.addCard(deck.dealCard());
+                for (int c = 0; c < 2; ++c) {
+                    Card card = deck.dealCard();
+                    p.addCard(card);
+                    if (journal != null)
+                        journal.deal(journalKey, ++journalSeq, handNumber, i, card);
+                }
             }
         }
 
@@ -143,6 +221,8 @@ public class Table {
     public void handleAction(PlayerAction action, int amount) {
         ServerPlayer p = players.get(currentPlayerIndex);
         actionsInRound++;
+        if (journal != null)
+            journal.action(journalKey, ++journalSeq, handNumber, currentPlayerIndex, action, amount);
 
         switch (action) {
             case FOLD -> p.setFolded(true);
@@ -199,16 +279,19 @@ public class Table {
                 .filter(p -> !p.isFolded() && !p.isWaitingForNextHand() && !p.isAllIn())
                 .count();
         if (activePlayers < 2) {
-            while (communityCards.size() < 5) {
-                communityCards.add(deck.dealCard());
+            allInSpot = captureAllInSpot();
+            if (allInSpot != null) {
+                runOutPending = true;
+                currentPlayerIndex = -1;
+                return;
             }
-            showdown();
+            runOut();
         }
         else {
             if (communityCards.size() < 5) {
                 int cardsToDeal = communityCards.isEmpty() ? 3 : 1;
                 for (int i = 0; i < cardsToDeal; ++i)
-                    communityCards.add(deck.dealCard());
+                    dealCommunityCard();
 
                 currentPlayerIndex = dealerIndex;
                 moveToNextActivePlayer();
@@ -219,64 +302,231 @@ public class Table {
         }
     }
 
+    public synchronized void runOut() {
+        runOutPending = false;
+        while (communityCards.size() < 5) {
+            dealCommunityCard();
+        }
+        showdown();
+    }
+
+    public boolean isRunOutPending() {
+        return runOutPending;
+    }
+
+    private AllInSpot captureAllInSpot() {
+        List<ServerPlayer> allIn = players.stream()
+                .filter(p -> !p.isFolded() && !p.isWaitingForNextHand())
+                .toList();
+        if (allIn.size() < 2 || communityCards.size() >= 5)
+            return null;
+
+        long[] holes = new long[allIn.size()];
+        for (int i = 0; i < holes.length; ++i)
+            holes[i] = allIn.get(i).getCardMask();
+        return new AllInSpot(handNumber, allIn, holes, communityMask);
+    }
+
+    // null unless a hand went all-in since the last call
+    public synchronized AllInSpot takeAllInSpot() {
+        AllInSpot spot = allInSpot;
+        allInSpot = null;
+        return spot;
+    }
+
     private void showdown() {
         isShowdown = true;
+        contenders.clear();
         for (ServerPlayer p : players) {
             if (!p.isFolded() && !p.isWaitingForNextHand()) {
-                List<Card> all = new ArrayList<>(p.getCards());
-                all.addAll(communityCards);
-                p.setCurrentResult(HandEvaluator.evaluate(all));
+                if (contenders.size() == contenderHoles.length)
+                    contenderHoles = Arrays.copyOf(contenderHoles, contenderHoles.length * 2);
+                contenderHoles[contenders.size()] = p.getCardMask();
+                contenders.add(p);
             }
         }
 
-        List<ServerPlayer> contenders = players.stream()
-                .filter(p -> !p.isFolded() && !p.isWaitingForNextHand())
-                .sorted((p1, p2) -> Long.compare(p2.getCurrentResult().getScore(), p1.getCurrentResult().getScore()))
-                .toList();
-
         if (!contenders.isEmpty()) {
-            long bestScore = contenders.getFirst().getCurrentResult().getScore();
-            List<ServerPlayer> winners = contenders.stream()
-                    .filter(p -> p.getCurrentResult().getScore() == bestScore)
-                    .toList();
-
-            int share = pot / winners.size();
-            for (ServerPlayer w : winners) {
+            long start = ServerMetrics.start();
+            showdownEvaluator.setBoard(communityMask);
+            showdownEvaluator.evaluateAll(contenderHoles, contenders.size());
+            ServerMetrics.stop(ServerMetrics.INSTANCE.showdown, start);
+            for (int i = 0; i < contenders.size(); ++i)
+                contenders.get(i).setCurrentResult(new HandResult(showdownEvaluator.getScore(i), communityMask | contenderHoles[i]));
+
+            int winnerCount = showdownEvaluator.getWinnerCount();
+            int share = pot / winnerCount;
+            for (int i = 0; i < winnerCount; ++i) {
+                ServerPlayer w = contenders.get(showdownEvaluator.getWinner(i));
                 w.addChips(share);
                 winnersNames.add(w.getName());
+                if (journal != null)
+                    journal.payout(journalKey, ++journalSeq, handNumber, players.indexOf(w), i == 0 ? share + pot % winnerCount : share);
             }
-            winners.getFirst().addChips(pot % winners.size());
+            contenders.get(showdownEvaluator.getWinner(0)).addChips(pot % winnerCount);
         }
         pot = 0;
         isHandInProgress = false;
+        if (journal != null)
+            journal.end(journalKey, ++journalSeq, handNumber);
     }
 
     private void endHandEarly() {
+        runOutPending = false;
         players.stream()
                 .filter(p -> !p.isFolded() && !p.isWaitingForNextHand())
                 .findFirst()
                 .ifPresent(winner -> {
+                    if (journal != null)
+                        journal.payout(journalKey, ++journalSeq, handNumber, players.indexOf(winner), pot);
                     winner.addChips(pot);
                     winnersNames.add(winner.getName());
                 });
         pot = 0;
         isHandInProgress = false;
+        if (journal != null)
+            journal.end(journalKey, ++journalSeq, handNumber);
+    }
+
+    // folds a player who left; returns true when that stopped the hand for lack of players
+    public boolean removePlayer(ServerPlayer player) {
+        int seat = players.indexOf(player);
+        if (journal != null && seat >= 0)
+            journal.leave(journalKey, ++journalSeq, handNumber, seat);
+        player.setOnline(false);
+        player.setFolded(true);
+        boolean stopped = isHandInProgress && players.stream().filter(ServerPlayer::isOnline).count() < 2;
+        if (!isHandInProgress || stopped)
+            cleanupDisconnected();
+        return stopped;
     }
 
     public void cleanupDisconnected() {
-        players.removeIf(p -> !p.isOnline());
+        // the hand is settled before seats shift so journaled payouts name the seats the hand was dealt to
         if (isHandInProgress && players.stream().filter(ServerPlayer::isOnline).count() < 2) {
             endHandEarly();
         }
+        players.removeIf(p -> !p.isOnline());
+    }
+
+    public void writeSnapshot(WireWriter w) {
+        w.writeVarLong(journalSeq);
+        w.writeVarLong(handNumber);
+        w.writeVarInt(pot);
+        w.writeVarInt(currentMaxBet);
+        w.writeSignedVarInt(dealerIndex);
+        w.writeVarInt(currentPlayerIndex);
+        w.writeVarInt(aggressorIndex);
+        w.writeVarInt(actionsInRound);
+        w.writeBoolean(isHandInProgress);
+        w.writeBoolean(isShowdown);
+        w.writeBoolean(runOutPending);
+        BinaryProtocol.writeCards(w, communityCards);
+        w.writeVarInt(winnersNames.size());
+        for (String name : winnersNames)
+            w.writeString(name);
+        w.writeVarInt(players.size());
+        for (ServerPlayer p : players)
+            p.writeSnapshot(w);
+    }
+
+    // only on a table nobody else has seen yet
+    public void readSnapshot(WireReader r) throws IOException {
+        journalSeq = r.readVarLong();
+        handNumber = r.readVarLong();
+        pot = r.readVarInt();
+        currentMaxBet = r.readVarInt();
+        dealerIndex = r.readSignedVarInt();
+        currentPlayerIndex = r.readVarInt();
+        aggressorIndex = r.readVarInt();
+        actionsInRound = r.readVarInt();
+        isHandInProgress = r.readBoolean();
+        isShowdown = r.readBoolean();
+        runOutPending = r.readBoolean();
+        clearCommunityCards();
+        for (Card card : BinaryProtocol.readCards(r)) {
+            communityCards.add(card);
+            communityMask |= card.getMask();
+        }
+        winnersNames.clear();
+        for (int i = r.readVarInt(); i > 0; --i)
+            winnersNames.add(r.readString());
+        players.clear();
+        long dealt = communityMask;
+        for (int i = r.readVarInt(); i > 0; --i) {
+            ServerPlayer p = ServerPlayer.readSnapshot(r);
+            if (!p.isFolded() && !p.isWaitingForNextHand()) {
+                for (Card card : communityCards)
+                    p.addBoardCard(card);
+            }
+            // a seat waiting for the next hand still holds the cards of the last one it played
+            if (!p.isWaitingForNextHand())
+                dealt |= p.getCardMask();
+            players.add(p);
+        }
+        deck.restore(dealt);
+    }
+
+    // re-runs the journaled inputs written after the snapshot, dealing the journaled cards
+    public void replay(List<HandJournal.Record> records) {
+        for (int i = 0; i < records.size(); ++i) {
+            HandJournal.Record rec = records.get(i);
+            if (rec.seq <= journalSeq)
+                continue;
+            switch (rec.type) {
+                case HandJournal.JOIN -> addPlayer(new ServerPlayer(rec.session, rec.text, rec.a));
+                case HandJournal.LEAVE -> removePlayer(players.get(rec.seat));
+                case HandJournal.HAND -> {
+                    forceDeals(records, i + 1);
+                    cleanupDisconnected();
+                    startNewHand();
+                    if (handNumber != rec.hand)
+                        throw new IllegalStateException("Replay diverged at hand " + rec.hand);
+                }
+                case HandJournal.ACTION -> {
+                    forceDeals(records, i + 1);
+                    handleAction(rec.getAction(), rec.b);
+                    // the journaled board follows the all-in unless the server stopped before running it out
+                    if (runOutPending && deck.forcedRemaining() > 0)
+                        runOut();
+                }
+                // a run-out journaled after someone left the paused hand
+                case HandJournal.BOARD -> {
+                    if (runOutPending) {
+                        forceDeals(records, i);
+                        runOut();
+                    }
+                }
+            }
+            if (deck.forcedRemaining() != 0)
+                throw new IllegalStateException("Replay diverged at hand " + rec.hand + ", record " + rec.seq);
+            journalSeq = rec.seq;
+        }
+        // replayed hands are long settled, nobody is watching their run-outs
+        allInSpot = null;
+    }
+
+    private void forceDeals(List<HandJournal.Record> records, int from) {
+        for (int i = from; i < records.size(); ++i) {
+            HandJournal.Record rec = records.get(i);
+            if (rec.type == HandJournal.DEAL || rec.type == HandJournal.BOARD)
+                deck.force(rec.a);
+            else if (rec.type != HandJournal.SEAT && rec.type != HandJournal.PAYOUT && rec.type != HandJournal.END)
+                return;
+        }
     }
 
+    public long getJournalSeq() { return journalSeq; }
+    public int getJournalKey() { return journalKey; }
     public int getCurrentPlayerIndex() { return currentPlayerIndex; }
     public List<ServerPlayer> getPlayers() { return players; }
     public int getPot() { return pot; }
     public int getCurrentMaxBet() { return currentMaxBet; }
     public List<Card> getCommunityCards() { return communityCards; }
+    public long getCommunityMask() { return communityMask; }
     public boolean isHandInProgress() { return isHandInProgress; }
     public boolean isShowdown() { return isShowdown; }
     public List<String> getWinnersNames() { return winnersNames; }
     public int getDealerIndex() { return dealerIndex; }
+    public long getHandNumber() { return handNumber; }
 }
\ No newline at end of file
@@ -0,0 +1,202 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TableRegistry {
+    private final ConcurrentHashMap<String, GameTable> tables = new ConcurrentHashMap<>();
+    private final AtomicInteger nextId = new AtomicInteger();
+    private final ExecutorService pool;
+    private final int seatsPerTable;
+    private final String rng;
+    private final String tablePrefix;
+    private final HandJournal journal;
+    private final SnapshotStore snapshots;
+    private final Collection<GameTable> adopted;
+
+    public TableRegistry() {
+        this(newPool(), ServerConfig.getInt("tableSeats", 9), ServerConfig.get("rng", "splittable"),
+                ServerConfig.get("nodeId", null), openJournal(), null);
+    }
+
+    // a standby that took over: the shadow tables it kept in step with the primary, running on the pool they were built with
+    public TableRegistry(ExecutorService pool, Collection<GameTable> adopted) {
+        this(pool, ServerConfig.getInt("tableSeats", 9), ServerConfig.get("rng", "splittable"),
+                ServerConfig.get("nodeId", null), openJournal(), adopted);
+    }
+
+    static ExecutorService newPool() {
+        return new ForkJoinPool(ServerConfig.getInt("tableThreads", Runtime.getRuntime().availableProcessors()),
+                ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+    }
+
+    private static HandJournal openJournal() {
+        try {
+            return HandJournal.fromConfig();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open hand journal", e);
+        }
+    }
+
+    public TableRegistry(ExecutorService pool, int seatsPerTable, String rng) {
+        this(pool, seatsPerTable, rng, null, null, null);
+    }
+
+    public TableRegistry(ExecutorService pool, int seatsPerTable, String rng, String nodeId, HandJournal journal) {
+        this(pool, seatsPerTable, rng, nodeId, journal, null);
+    }
+
+    // a shard node names its lobby tables after itself so the gateway can route joins back to it,
+    // without adopted tables the registry recovers whatever the journal holds
+    public TableRegistry(ExecutorService pool, int seatsPerTable, String rng, String nodeId, HandJournal journal,
+                         Collection<GameTable> adopted) {
+        this.pool = pool;
+        this.journal = journal;
+        this.seatsPerTable = seatsPerTable;
+        this.rng = rng;
+        this.tablePrefix = nodeId == null ? "t" : nodeId + "-t";
+        this.snapshots = journal != null ? new SnapshotStore(journal) : null;
+        this.adopted = adopted;
+    }
+
+    // brings the tables in and starts the periodic snapshots, once the registry is fully built
+    public TableRegistry start() {
+        if (adopted != null)
+            adopt(adopted);
+        else if (snapshots != null)
+            recover();
+        if (snapshots != null)
+            snapshots.start(this::getTables, ServerConfig.getLong("snapshotSeconds", 30));
+        return this;
+    }
+
+    public static class Seat {
+        public final GameTable table;
+        public final String name;
+
+        Seat(GameTable table, String name) {
+            this.table = table;
+            this.name = name;
+        }
+    }
+
+    private void recover() {
+        try {
+            long start = System.nanoTime();
+            // the journal has just opened this run's segment, everything before it belongs to earlier runs
+            Collection<GameTable> recovered = snapshots.recover(
+                    id -> new GameTable(id, seatsPerTable, RandomSources.create(rng), pool), journal.getPosition());
+            if (!recovered.isEmpty()) {
+                adopt(recovered);
+                System.out.printf("Recovered %d tables in %.1f ms%n", recovered.size(), (System.nanoTime() - start) / 1e6);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Table recovery failed", e);
+        }
+    }
+
+    private void adopt(Collection<GameTable> adopted) {
+        for (GameTable table : adopted) {
+            if (journal != null)
+                table.attachJournal(journal);
+            tables.put(table.getId(), table);
+            table.resume();
+        }
+        // the journal only holds what happens from here on, the snapshot covers everything before
+        if (snapshots != null && !adopted.isEmpty()) {
+            try {
+                snapshots.save(tables.values());
+            } catch (IOException e) {
+                throw new UncheckedIOException("Snapshot of adopted tables failed", e);
+            }
+        }
+    }
+
+    // null tableId seats the player at the first table with room, opening a new one if needed
+    public Seat reserveSeat(String tableId, String name) {
+        if (tableId != null)
+            return reserveAt(tableId, name);
+        for (GameTable table : tables.values()) {
+            String seatName = table.reserveSeat(name);
+            if (seatName != null)
+                return new Seat(table, seatName);
+        }
+        while (true) {
+            Seat seat = reserveAt(tablePrefix + nextId.incrementAndGet(), name);
+            if (seat != null)
+                return seat;
+        }
+    }
+
+    // null when the table is full
+    private Seat reserveAt(String tableId, String name) {
+        while (true) {
+            GameTable table = tables.computeIfAbsent(tableId, this::newTable);
+            String seatName = table.reserveSeat(name);
+            if (seatName != null)
+                return new Seat(table, seatName);
+            if (!table.isClosed())
+                return null;
+            tables.remove(tableId, table);
+        }
+    }
+
+    public void releaseSeat(GameTable table, String name) {
+        if (table.releaseSeat(name))
+            tables.remove(table.getId(), table);
+    }
+
+    private GameTable newTable(String id) {
+        return new GameTable(id, seatsPerTable, RandomSources.create(rng), pool, journal);
+    }
+
+    public GameTable get(String id) {
+        return tables.get(id);
+    }
+
+    public Collection<GameTable> getTables() {
+        return tables.values();
+    }
+
+    public List<String> describe() {
+        List<String> lines = new ArrayList<>();
+        for (GameTable table : tables.values())
+            lines.add(table.getId() + ": " + table.getSeatedCount() + "/" + table.getMaxSeats());
+        return lines;
+    }
+
+    HandJournal getJournal() {
+        return journal;
+    }
+
+    // the snapshot file's layout, starting with the journal position it was taken at
+    byte[] capture() {
+        if (snapshots == null)
+            throw new IllegalStateException("Snapshots need poker.journalDir");
+        return snapshots.capture(tables.values());
+    }
+
+    public void snapshot() throws IOException {
+        if (snapshots == null)
+            throw new IllegalStateException("Snapshots need poker.journalDir");
+        snapshots.save(tables.values());
+    }
+
+    public void shutdown() {
+        pool.shutdown();
+        if (snapshots != null)
+            snapshots.shutdown();
+        closeJournal();
+    }
+
+    // drains what the tables appended so far, called on the way out of the process
+    public void closeJournal() {
+        if (journal != null)
+            journal.close();
+    }
+}
@@ -0,0 +1,182 @@
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
+
+// one thread drives every timer of the server: a hashed wheel of slots one tick wide, where a timer further out
+// than one turn waits in its slot for the remaining rounds, so scheduling and cancelling stay O(1) at any count
+public class TimerWheel implements Runnable {
+    public static final TimerWheel SERVER = start(ServerConfig.getLong("timerTickMs", 10), ServerConfig.getInt("timerSlots", 512));
+
+    private final long tickNanos;
+    private final Slot[] wheel;
+    private final int mask;
+    private final long startTime = System.nanoTime();
+    // scheduling and cancelling threads only hand timers over, the wheel itself belongs to the worker
+    private final ConcurrentLinkedQueue<Timeout> added = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<Timeout> cancelled = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private long tick;
+
+    public static final class Timeout {
+        private static final int WAITING = 0;
+        private static final int CANCELLED = 1;
+        private static final int EXPIRED = 2;
+        private static final AtomicIntegerFieldUpdater<Timeout> STATE = AtomicIntegerFieldUpdater.newUpdater(Timeout.class, "state");
+
+        private final TimerWheel timer;
+        private final Runnable task;
+        private final long deadline;
+        private volatile int state;
+        private long rounds;
+        private Slot slot;
+        private Timeout prev;
+        private Timeout next;
+
+        private Timeout(TimerWheel timer, Runnable task, long deadline) {
+            this.timer = timer;
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        // false when the task already ran or was cancelled before
+        public boolean cancel() {
+            if (!STATE.compareAndSet(this, WAITING, CANCELLED))
+                return false;
+            timer.cancelled.add(this);
+            return true;
+        }
+
+        public boolean isCancelled() {
+            return state == CANCELLED;
+        }
+    }
+
+    private static class Slot {
+        private Timeout head;
+        private Timeout tail;
+
+        void add(Timeout timeout) {
+            timeout.slot = this;
+            timeout.prev = tail;
+            if (tail == null)
+                head = timeout;
+            else
+                tail.next = timeout;
+            tail = timeout;
+        }
+
+        void remove(Timeout timeout) {
+            if (timeout.prev == null)
+                head = timeout.next;
+            else
+                timeout.prev.next = timeout.next;
+            if (timeout.next == null)
+                tail = timeout.prev;
+            else
+                timeout.next.prev = timeout.prev;
+            timeout.slot = null;
+            timeout.prev = null;
+            timeout.next = null;
+        }
+    }
+
+    private TimerWheel(long tickMillis, int slots) {
+        if (Integer.bitCount(slots) != 1)
+            throw new IllegalArgumentException("Slot count must be a power of two");
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+        this.wheel = new Slot[slots];
+        for (int i = 0; i < slots; ++i)
+            wheel[i] = new Slot();
+        this.mask = slots - 1;
+    }
+
+    public static TimerWheel start(long tickMillis, int slots) {
+        TimerWheel timer = new TimerWheel(tickMillis, slots);
+        Thread worker = new Thread(timer, "timer-wheel");
+        worker.setDaemon(true);
+        worker.start();
+        return timer;
+    }
+
+    // the task runs on the wheel's thread and has to be quick: anything more than a hand-off holds up every other timer
+    public Timeout schedule(long delayMillis, Runnable task) {
+        Timeout timeout = new Timeout(this, task, System.nanoTime() - startTime + TimeUnit.MILLISECONDS.toNanos(delayMillis));
+        pending.incrementAndGet();
+        added.add(timeout);
+        return timeout;
+    }
+
+    public int getPending() {
+        return pending.get();
+    }
+
+    @Override
+    public void run() {
+        while (true) {
+            long now = awaitTick();
+            removeCancelled();
+            transferAdded();
+            expire(wheel[(int) tick & mask], now);
+            tick++;
+        }
+    }
+
+    private long awaitTick() {
+        long deadline = (tick + 1) * tickNanos;
+        while (true) {
+            long now = System.nanoTime() - startTime;
+            if (now >= deadline)
+                return now;
+            LockSupport.parkNanos(this, deadline - now);
+        }
+    }
+
+    private void removeCancelled() {
+        Timeout timeout;
+        while ((timeout = cancelled.poll()) != null) {
+            // still in the added queue when it has no slot yet, transferAdded drops it
+            if (timeout.slot != null) {
+                timeout.slot.remove(timeout);
+                pending.decrementAndGet();
+            }
+        }
+    }
+
+    private void transferAdded() {
+        Timeout timeout;
+        while ((timeout = added.poll()) != null) {
+            if (timeout.isCancelled()) {
+                pending.decrementAndGet();
+                continue;
+            }
+            long due = timeout.deadline / tickNanos;
+            timeout.rounds = (due - tick) / wheel.length;
+            // a deadline already behind goes into the slot about to expire
+            wheel[(int) Math.max(due, tick) & mask].add(timeout);
+        }
+    }
+
+    private void expire(Slot slot, long now) {
+        Timeout timeout = slot.head;
+        while (timeout != null) {
+            Timeout next = timeout.next;
+            if (timeout.rounds <= 0 && timeout.deadline <= now) {
+                slot.remove(timeout);
+                pending.decrementAndGet();
+                if (Timeout.STATE.compareAndSet(timeout, Timeout.WAITING, Timeout.EXPIRED)) {
+                    try {
+                        timeout.task.run();
+                    } catch (RuntimeException e) {
+                        System.err.println("Timer task error: " + e.getMessage());
+                        e.printStackTrace();
+                    }
+                }
+            } else if (timeout.rounds > 0) {
+                timeout.rounds--;
+            }
+            timeout = next;
+        }
+    }
+}
@@ -0,0 +1,15 @@
+public enum Transport {
+    PLATFORM,
+    VIRTUAL;
+
+    public Thread.Builder connectionThreads() {
+        return switch (this) {
+            case PLATFORM -> Thread.ofPlatform().name("client-", 0);
+            case VIRTUAL -> Thread.ofVirtual().name("client-", 0);
+        };
+    }
+
+    public static Transport fromConfig() {
+        return valueOf(ServerConfig.get("transport", "virtual").toUpperCase());
+    }
+}